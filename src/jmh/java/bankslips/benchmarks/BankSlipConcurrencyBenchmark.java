@@ -0,0 +1,148 @@
+package bankslips.benchmarks;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Latencia e vazao da listagem de boletos com muitas conexoes simultaneas, na
+ * API servlet (Tomcat com threads de plataforma), na API servlet com virtual
+ * threads (profile virtual) e na API WebFlux (profile reactive, Netty, com a
+ * base em JPA)
+ * 
+ * Cada operacao dispara CONNECTIONS requisicoes ao mesmo tempo e aguarda todas
+ * as respostas; ao final sao informados os percentis 50 e 99 da latencia das
+ * requisicoes e a vazao (requisicoes por segundo). O pool de conexoes tem o
+ * mesmo tamanho em todos os casos e e o limite de acesso a base.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BankSlipConcurrencyBenchmark {
+
+	private static final int CONNECTIONS = 5_000;
+
+	private static final int PRELOADED_BANK_SLIPS = 1_000;
+
+	private static final int POOL_SIZE = 20;
+
+	@Param({ "servlet", "virtual", "reactive" })
+	private String stack;
+
+	private ConfigurableApplicationContext context;
+	private WebClient webClient;
+
+	private final List<long[]> latencies = new ArrayList<>();
+	private final List<Long> burstTimes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws ParseException {
+		String[] args = { "--server.port=0", "--spring.main.banner-mode=off", "--logging.level.root=WARN",
+				"--spring.profiles.active=" + ("servlet".equals(stack) ? "default" : stack),
+				"--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+				"--spring.datasource.hikari.minimum-idle=" + POOL_SIZE,
+				"--server.tomcat.max-connections=" + (CONNECTIONS * 2), "--server.tomcat.accept-count=" + CONNECTIONS };
+		context = Application.create(args).run(args);
+
+		BankSlipRepository bankSlipRepository = context.getBean(BankSlipRepository.class);
+		BankSlipDTO bankSlipDTO = new BankSlipDTO("2018-05-10", 100000, "Conta Azul", BankSlipStatusEnum.PENDING);
+
+		List<BankSlip> bankSlips = new ArrayList<>(PRELOADED_BANK_SLIPS);
+		for (int i = 0; i < PRELOADED_BANK_SLIPS; i++)
+			bankSlips.add(bankSlipDTO.getEntityToSave());
+		bankSlipRepository.saveAll(bankSlips);
+
+		String port = context.getEnvironment().getProperty("local.server.port");
+		webClient = WebClient.builder() //
+				.baseUrl("http://localhost:" + port) //
+				.clientConnector(new ReactorClientHttpConnector(
+						HttpClient.create(ConnectionProvider.create("benchmark", CONNECTIONS)))) //
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+
+		// ignora as iteracoes de aquecimento
+		List<long[]> measured = latencies.subList(Math.min(3, latencies.size()), latencies.size());
+		List<Long> measuredTimes = burstTimes.subList(Math.min(3, burstTimes.size()), burstTimes.size());
+
+		long[] all = measured.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+		if (all.length == 0)
+			return;
+
+		System.out.println();
+		System.out.println("stack=" + stack + " connections=" + CONNECTIONS + " p50(ms)="
+				+ percentile(all, 50) / 1_000_000.0 + " p99(ms)=" + percentile(all, 99) / 1_000_000.0
+				+ " throughput(req/s)=" + all.length * 1_000_000_000L
+						/ measuredTimes.stream().mapToLong(Long::longValue).sum());
+	}
+
+	@Benchmark
+	public long[] listConcurrently() {
+		long start = System.nanoTime();
+		long[] burst = Flux.range(0, CONNECTIONS) //
+				.flatMap(i -> timedRequest(), CONNECTIONS) //
+				.collectList() //
+				.map(list -> list.stream().mapToLong(Long::longValue).toArray()) //
+				.block(Duration.ofMinutes(2));
+
+		latencies.add(burst);
+		burstTimes.add(System.nanoTime() - start);
+		return burst;
+	}
+
+	private Mono<Long> timedRequest() {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+
+			return webClient.get().uri("/rest/bankslips?limit=20") //
+					.retrieve() //
+					.bodyToMono(String.class) //
+					.map(body -> System.nanoTime() - start);
+		});
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)];
+	}
+
+}
@@ -0,0 +1,102 @@
+package bankslips.benchmarks;
+
+import java.math.BigDecimal;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bankslips.data.BankSlip;
+import bankslips.data.FineCalculator;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+/**
+ * Conversoes entre Entity e DTO e calculo da multa
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankSlipDTOBenchmark {
+
+	private BankSlip bankSlip;
+	private BankSlipDTO bankSlipDTO;
+	private BankSlipDTO overdueBankSlipDTO;
+	private FineCalculator fineCalculator;
+
+	// implementacao anterior do calculo da multa, para comparacao
+	private DateFormat legacyDateFormat;
+
+	@Setup
+	public void setUp() throws ParseException {
+		bankSlipDTO = new BankSlipDTO("2018-05-10", 100000, "Conta Azul", BankSlipStatusEnum.PENDING);
+		bankSlipDTO.setId(UUID.randomUUID());
+
+		bankSlip = bankSlipDTO.getEntityToSave();
+
+		overdueBankSlipDTO = new BankSlipDTO(DateCodec.format(LocalDate.now().minusDays(15)), 100000, "Overdue",
+				BankSlipStatusEnum.PENDING);
+
+		fineCalculator = new FineCalculator(Clock.systemDefaultZone(), 10, 50, 100);
+		legacyDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+	}
+
+	@Benchmark
+	public BankSlipDTO entityToDto() {
+		return new BankSlipDTO(bankSlip);
+	}
+
+	@Benchmark
+	public BankSlip dtoToEntity() throws ParseException {
+		return bankSlipDTO.getEntityToSave();
+	}
+
+	@Benchmark
+	public Long verifyOverDueAndUpdateFine() {
+		overdueBankSlipDTO.verifyOverDueAndUpdateFine(fineCalculator);
+		return overdueBankSlipDTO.getFine();
+	}
+
+	@Benchmark
+	public Integer legacyVerifyOverDueAndUpdateFine() throws ParseException {
+		Date dueDate = legacyDateFormat.parse(overdueBankSlipDTO.getDueDate());
+		Date today = legacyDateFormat.parse(legacyDateFormat.format(new Date()));
+
+		long diff = today.getTime() - dueDate.getTime();
+		long overDueDays = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
+
+		Integer fine = null;
+		if (overDueDays > 0) {
+			BigDecimal tax = new BigDecimal(0.005);
+			if (overDueDays > 10) {
+				tax = new BigDecimal(0.01);
+			}
+
+			fine = new BigDecimal(overdueBankSlipDTO.getTotalInCents()).multiply(tax).toBigInteger().intValue();
+		}
+		return fine;
+	}
+
+}
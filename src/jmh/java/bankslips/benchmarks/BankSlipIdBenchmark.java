@@ -0,0 +1,108 @@
+package bankslips.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bankslips.data.TimeOrderedUUIDGenerator;
+
+/**
+ * Insercao de boletos com ids aleatorios (v4) e ordenados pelo tempo (v7)
+ * 
+ * Ao final de cada execucao e informado o tamanho medio por registro do arquivo
+ * do H2 (dados e indice da chave primaria).
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankSlipIdBenchmark {
+
+	@Param({ "random", "time-ordered" })
+	private String generator;
+
+	private Path directory;
+	private Connection connection;
+	private PreparedStatement insert;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, SQLException {
+		directory = Files.createTempDirectory("bankslip-id-benchmark");
+		connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("bankslips"), "sa", "");
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table bank_slip (id binary(16) not null, due_date date not null, "
+					+ "total_in_cents bigint not null, customer varchar(255) not null, status tinyint not null, "
+					+ "version bigint default 0 not null, primary key (id))");
+		}
+
+		insert = connection.prepareStatement("insert into bank_slip (id, due_date, total_in_cents, customer, status) "
+				+ "values (?, date '2018-05-10', 100000, 'Conta Azul', 0)");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, SQLException {
+		long rows;
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("select count(*) from bank_slip")) {
+			resultSet.next();
+			rows = resultSet.getLong(1);
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("checkpoint sync");
+		}
+
+		long size = 0;
+		for (String file : directory.toFile().list())
+			size += Files.size(directory.resolve(file));
+		System.out.println();
+		System.out.println("generator=" + generator + " rows: " + rows + " bytes/row: " + (size / Math.max(rows, 1)));
+
+		connection.close();
+		for (String file : directory.toFile().list())
+			Files.delete(directory.resolve(file));
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public int insert() throws SQLException {
+		UUID id = "random".equals(generator) ? UUID.randomUUID() : TimeOrderedUUIDGenerator.next();
+
+		ByteBuffer bytes = ByteBuffer.allocate(16);
+		bytes.putLong(id.getMostSignificantBits());
+		bytes.putLong(id.getLeastSignificantBits());
+
+		insert.setBytes(1, bytes.array());
+		return insert.executeUpdate();
+	}
+
+}
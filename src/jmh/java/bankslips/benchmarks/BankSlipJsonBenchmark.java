@@ -0,0 +1,141 @@
+package bankslips.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+/**
+ * Serializacao JSON de um boleto e de listas de boletos, com o serializador
+ * dedicado (BankSlipDTOSerializer) e com a serializacao padrao por getters
+ * 
+ * O benchmark stream escreve a lista em um OutputStream sem acumular os bytes
+ * e informa a vazao em bytes/s (contador bytes); com -prof gc, a alocacao por
+ * boleto e gc.alloc.rate.norm dividido por listSize.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankSlipJsonBenchmark {
+
+	@Param({ "100", "1000" })
+	private int listSize;
+
+	@Param({ "bean", "direct" })
+	private String serializer;
+
+	private ObjectWriter singleWriter;
+	private ObjectWriter listWriter;
+
+	private BankSlipDTO bankSlipDTO;
+	private List<BankSlipDTO> bankSlipDTOs;
+
+	@Setup
+	public void setUp() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		if ("bean".equals(serializer))
+			objectMapper.addMixIn(BankSlipDTO.class, BeanSerialization.class);
+
+		singleWriter = objectMapper.writerFor(BankSlipDTO.class);
+		listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class,
+				BankSlipDTO.class));
+
+		LocalDate dueDate = LocalDate.of(2018, 5, 10);
+
+		bankSlipDTOs = new ArrayList<>(listSize);
+		for (int i = 0; i < listSize; i++) {
+			BankSlipDTO dto = new BankSlipDTO(DateCodec.format(dueDate.plusDays(i % 365)), 100000 + i,
+					"Customer " + (i % 100), BankSlipStatusEnum.values()[i % 3]);
+			dto.setId(UUID.randomUUID());
+			bankSlipDTOs.add(dto);
+		}
+
+		bankSlipDTO = bankSlipDTOs.get(0);
+	}
+
+	@Benchmark
+	public byte[] single() throws JsonProcessingException {
+		return singleWriter.writeValueAsBytes(bankSlipDTO);
+	}
+
+	@Benchmark
+	public byte[] list() throws JsonProcessingException {
+		return listWriter.writeValueAsBytes(bankSlipDTOs);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void stream(ByteCounter counter) throws IOException {
+		listWriter.writeValue(counter, bankSlipDTOs);
+	}
+
+	/**
+	 * Descarta os bytes escritos, apenas contando
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ByteCounter extends OutputStream {
+
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+
+		@Override
+		public void write(int b) {
+			bytes++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			bytes += len;
+		}
+
+		@Override
+		public void close() {
+			// mantido aberto entre as operacoes
+		}
+
+	}
+
+	@JsonSerialize(using = JsonSerializer.None.class)
+	private interface BeanSerialization {
+	}
+
+}
@@ -0,0 +1,133 @@
+package bankslips.benchmarks;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import bankslips.controllers.BankSlipExceptionMetrics;
+import bankslips.data.BankSlipService;
+import bankslips.data.FineCalculator;
+import bankslips.exceptions.BankSlipNotFoundException;
+import bankslips.utils.TimedMethodInterceptor;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Custo da instrumentacao por chamada: metodo anotado com @Timed (com
+ * histograma, como em application.properties) medido pelo TimedAspect do
+ * Micrometer e pelo TimedMethodInterceptor usado na aplicacao, registro direto
+ * no timer e contador de excecoes, comparados com a chamada sem instrumentacao
+ *
+ * O metodo medido calcula a faixa de multa de um boleto, para que o custo da
+ * chamada em si seja pequeno perto do custo da instrumentacao.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankSlipMetricsBenchmark {
+
+	@Param({ "none", "timed-aspect", "timed" })
+	private String instrumentation;
+
+	private FineTier fineTier;
+	private PrometheusMeterRegistry registry;
+	private Timer timer;
+	private BankSlipNotFoundException exception;
+
+	private long epochDay;
+
+	public static class FineTier {
+
+		private final FineCalculator fineCalculator = new FineCalculator(Clock.systemDefaultZone(), 10, 50, 100);
+
+		@Timed(BankSlipService.METRIC)
+		public int tier(long epochDay) {
+			return fineCalculator.tier(epochDay);
+		}
+
+	}
+
+	@Setup
+	public void setUp() {
+		registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		registry.config().meterFilter(new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder() //
+						.percentilesHistogram(true) //
+						.build() //
+						.merge(config);
+			}
+		});
+
+		fineTier = new FineTier();
+		if ("timed-aspect".equals(instrumentation)) {
+			AspectJProxyFactory proxyFactory = new AspectJProxyFactory(fineTier);
+			proxyFactory.setProxyTargetClass(true);
+			proxyFactory.addAspect(new TimedAspect(registry));
+			fineTier = proxyFactory.getProxy();
+		} else if ("timed".equals(instrumentation)) {
+			DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+			beanFactory.registerSingleton("registry", registry);
+
+			ProxyFactory proxyFactory = new ProxyFactory(fineTier);
+			proxyFactory.setProxyTargetClass(true);
+			proxyFactory.addAdvisor(TimedMethodInterceptor.advisor(beanFactory.getBeanProvider(MeterRegistry.class)));
+			fineTier = (FineTier) proxyFactory.getProxy();
+		}
+
+		timer = Timer.builder("bankslips.record").register(registry);
+		exception = new BankSlipNotFoundException();
+		epochDay = LocalDate.now().minusDays(15).toEpochDay();
+	}
+
+	@Benchmark
+	public int timedCall() {
+		return fineTier.tier(epochDay);
+	}
+
+	@Benchmark
+	public void timerRecord() {
+		if (!"none".equals(instrumentation))
+			timer.record(epochDay, TimeUnit.NANOSECONDS);
+	}
+
+	@Benchmark
+	public void exceptionCounter() {
+		if (!"none".equals(instrumentation))
+			Counter.builder(BankSlipExceptionMetrics.METRIC) //
+					.tag("exception", exception.getClass().getSimpleName()) //
+					.register(registry) //
+					.increment();
+	}
+
+}
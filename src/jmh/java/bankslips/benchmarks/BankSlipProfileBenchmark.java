@@ -0,0 +1,179 @@
+package bankslips.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipService;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Carga mista na API servlet com a configuracao padrao (H2 em memoria, pool
+ * padrao) e com o profile prod (H2 em arquivo, pool e Hibernate ajustados)
+ *
+ * Cada operacao dispara REQUESTS requisicoes, no maximo CONCURRENCY ao mesmo
+ * tempo: 60% detalhes de um boleto, 25% listagem por cliente, 10% criacao e 5%
+ * pagamento. Ao final sao informados os percentis 50 e 99 da latencia e a vazao
+ * (requisicoes por segundo).
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BankSlipProfileBenchmark {
+
+	private static final int REQUESTS = 5_000;
+
+	private static final int CONCURRENCY = 64;
+
+	private static final int PRELOADED_BANK_SLIPS = 10_000;
+
+	private static final int CUSTOMERS = 100;
+
+	@Param({ "default", "prod" })
+	private String profile;
+
+	private Path dataDir;
+	private ConfigurableApplicationContext context;
+	private WebClient webClient;
+
+	private List<UUID> ids;
+
+	private final List<long[]> latencies = new ArrayList<>();
+	private final List<Long> burstTimes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, ParseException {
+		dataDir = Files.createTempDirectory("bankslip-profile-benchmark");
+
+		String[] args = { "--server.port=0", "--spring.main.banner-mode=off", "--logging.level.root=WARN",
+				"--logging.level.bankslips.data.DatabaseSettingsReport=INFO", "--spring.profiles.active=" + profile,
+				"--bankslips.data-dir=" + dataDir };
+		context = Application.create(args).run(args);
+
+		List<BankSlip> bankSlips = new ArrayList<>(PRELOADED_BANK_SLIPS);
+		for (int i = 0; i < PRELOADED_BANK_SLIPS; i++)
+			bankSlips.add(new BankSlipDTO("2018-05-10", 100000, "Customer " + (i % CUSTOMERS),
+					BankSlipStatusEnum.PENDING).getEntityToSave());
+		context.getBean(BankSlipService.class).saveAll(bankSlips);
+		ids = bankSlips.stream().map(BankSlip::getId).toList();
+
+		String port = context.getEnvironment().getProperty("local.server.port");
+		webClient = WebClient.builder() //
+				.baseUrl("http://localhost:" + port) //
+				.clientConnector(new ReactorClientHttpConnector(
+						HttpClient.create(ConnectionProvider.create("benchmark", CONCURRENCY)))) //
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		context.close();
+
+		try (Stream<Path> files = Files.walk(dataDir)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+				Files.delete(file);
+		}
+
+		// ignora as iteracoes de aquecimento
+		List<long[]> measured = latencies.subList(Math.min(3, latencies.size()), latencies.size());
+		List<Long> measuredTimes = burstTimes.subList(Math.min(3, burstTimes.size()), burstTimes.size());
+
+		long[] all = measured.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+		if (all.length == 0)
+			return;
+
+		System.out.println();
+		System.out.println("profile=" + profile + " concurrency=" + CONCURRENCY + " p50(ms)="
+				+ percentile(all, 50) / 1_000_000.0 + " p99(ms)=" + percentile(all, 99) / 1_000_000.0
+				+ " throughput(req/s)=" + all.length * 1_000_000_000L
+						/ measuredTimes.stream().mapToLong(Long::longValue).sum());
+	}
+
+	@Benchmark
+	public long[] mixedLoad() {
+		long start = System.nanoTime();
+		long[] burst = Flux.range(0, REQUESTS) //
+				.flatMap(i -> timedRequest(), CONCURRENCY) //
+				.collectList() //
+				.map(list -> list.stream().mapToLong(Long::longValue).toArray()) //
+				.block(Duration.ofMinutes(2));
+
+		latencies.add(burst);
+		burstTimes.add(System.nanoTime() - start);
+		return burst;
+	}
+
+	private Mono<Long> timedRequest() {
+		return Mono.defer(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int operation = random.nextInt(100);
+			UUID id = ids.get(random.nextInt(ids.size()));
+
+			WebClient.RequestHeadersSpec<?> request;
+			if (operation < 60)
+				request = webClient.get().uri("/rest/bankslips/{id}", id);
+			else if (operation < 85)
+				request = webClient.get().uri("/rest/bankslips?customer={customer}&limit=20",
+						"Customer " + random.nextInt(CUSTOMERS));
+			else if (operation < 95)
+				request = webClient.post().uri("/rest/bankslips") //
+						.contentType(MediaType.APPLICATION_JSON) //
+						.bodyValue("{\"due_date\":\"2018-05-10\",\"total_in_cents\":100000,\"customer\":\"Customer "
+								+ random.nextInt(CUSTOMERS) + "\"}");
+			else
+				// boletos ja pagos respondem 409, tambem medido
+				request = webClient.put().uri("/rest/bankslips/{id}/pay", id);
+
+			long start = System.nanoTime();
+			return request.exchangeToMono(response -> response.releaseBody()) //
+					.then(Mono.fromSupplier(() -> System.nanoTime() - start));
+		});
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(index, 0)];
+	}
+
+}
@@ -0,0 +1,86 @@
+package bankslips.benchmarks;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Gravacao e leitura de boletos no H2 embarcado
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankSlipRepositoryBenchmark {
+
+	private static final int PRELOADED_BANK_SLIPS = 10_000;
+
+	private ConfigurableApplicationContext context;
+	private BankSlipRepository bankSlipRepository;
+
+	private BankSlipDTO bankSlipDTO;
+	private UUID[] ids;
+
+	@Setup(Level.Trial)
+	public void setUp() throws ParseException {
+		context = SpringApplication.run(Application.class, "--server.port=0", "--spring.main.banner-mode=off",
+				"--logging.level.root=WARN");
+
+		bankSlipRepository = context.getBean(BankSlipRepository.class);
+		bankSlipDTO = new BankSlipDTO("2018-05-10", 100000, "Conta Azul", BankSlipStatusEnum.PENDING);
+
+		List<BankSlip> bankSlips = new ArrayList<>(PRELOADED_BANK_SLIPS);
+		for (int i = 0; i < PRELOADED_BANK_SLIPS; i++)
+			bankSlips.add(bankSlipDTO.getEntityToSave());
+
+		ids = new UUID[PRELOADED_BANK_SLIPS];
+		int i = 0;
+		for (BankSlip bankSlip : bankSlipRepository.saveAll(bankSlips))
+			ids[i++] = bankSlip.getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public BankSlip save() throws ParseException {
+		return bankSlipRepository.save(bankSlipDTO.getEntityToSave());
+	}
+
+	@Benchmark
+	public BankSlip findById() {
+		return bankSlipRepository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]).get();
+	}
+
+}
@@ -0,0 +1,146 @@
+package bankslips.benchmarks;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tempo ate a primeira requisicao e memoria residente (RSS) de um novo processo
+ * da aplicacao: jar executavel com a configuracao padrao e com o profile slim,
+ * e profile slim no classpath expandido do profile cds do Maven, sem e com o
+ * arquivo AppCDS
+ *
+ * Cada operacao inicia a aplicacao, consulta a listagem de boletos a cada
+ * POLL_INTERVAL_MS ate a primeira resposta 200 e le o VmRSS do processo nesse
+ * momento (Linux). Os modos cds exigem o build com o profile cds:
+ * mvn -Pcds,benchmarks verify -Djmh.args="BankSlipStartupBenchmark"
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BankSlipStartupBenchmark {
+
+	private static final long POLL_INTERVAL_MS = 100;
+
+	private static final Path EXECUTABLE_JAR = Paths.get("target", "boletos-0.0.1-SNAPSHOT.jar");
+
+	private static final Path CDS_DIRECTORY = Paths.get("target", "cds");
+
+	@Param({ "default", "slim", "unpacked-slim", "cds-slim" })
+	private String mode;
+
+	private String java;
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+
+	private final List<Long> residentSizes = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		java = ProcessHandle.current().info().command().orElse("java");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		// ignora a iteracao de aquecimento
+		List<Long> measured = residentSizes.subList(Math.min(1, residentSizes.size()), residentSizes.size());
+		if (measured.isEmpty())
+			return;
+
+		System.out.println();
+		System.out.println("mode=" + mode + " rss(MB)="
+				+ measured.stream().mapToLong(Long::longValue).sum() / measured.size() / 1024 / 1024);
+	}
+
+	@Benchmark
+	public long firstRequest() throws IOException, InterruptedException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+
+		List<String> command = new ArrayList<>();
+		command.add(java);
+		if (mode.startsWith("unpacked") || mode.startsWith("cds")) {
+			if (mode.startsWith("cds"))
+				command.add("-XX:SharedArchiveFile=" + CDS_DIRECTORY.resolve("boletos.jsa"));
+			command.add("-jar");
+			command.add(CDS_DIRECTORY.resolve("boletos.jar").toString());
+		} else {
+			command.add("-jar");
+			command.add(EXECUTABLE_JAR.toString());
+		}
+		command.add("--server.port=" + port);
+		command.add("--spring.main.banner-mode=off");
+		command.add("--logging.level.root=WARN");
+		if (mode.endsWith("slim"))
+			command.add("--spring.profiles.active=slim");
+
+		HttpRequest request = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + port + "/rest/bankslips?customer=startup")).build();
+
+		Process process = new ProcessBuilder(command) //
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD) //
+				.redirectError(ProcessBuilder.Redirect.DISCARD) //
+				.start();
+		try {
+			while (true) {
+				if (!process.isAlive())
+					throw new IllegalStateException("Application exited with code " + process.exitValue());
+
+				try {
+					if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+						break;
+				} catch (ConnectException e) {
+					// servidor ainda nao iniciado
+				}
+
+				Thread.sleep(POLL_INTERVAL_MS);
+			}
+
+			residentSizes.add(residentSize(process.pid()));
+			return process.pid();
+		} finally {
+			process.destroy();
+			process.waitFor();
+		}
+	}
+
+	private static long residentSize(long pid) throws IOException {
+		for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status")))
+			if (line.startsWith("VmRSS:"))
+				return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+		return 0;
+	}
+
+}
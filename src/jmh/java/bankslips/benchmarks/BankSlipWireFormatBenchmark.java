@@ -0,0 +1,105 @@
+package bankslips.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import bankslips.data.TimeOrderedUUIDGenerator;
+import bankslips.data.dto.BankSlipCborModule;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+/**
+ * Codificacao e decodificacao de listas de boletos em JSON (formato padrao) e
+ * CBOR (application/cbor, BankSlipCborModule)
+ *
+ * Ao final e informado o tamanho da lista codificada em cada formato.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankSlipWireFormatBenchmark {
+
+	@Param({ "json", "cbor" })
+	private String format;
+
+	@Param({ "1000" })
+	private int listSize;
+
+	private ObjectWriter writer;
+	private ObjectReader reader;
+
+	private List<BankSlipDTO> bankSlipDTOs;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper objectMapper = "cbor".equals(format)
+				? new CBORMapper().registerModule(new BankSlipCborModule())
+				: new ObjectMapper();
+
+		writer = objectMapper.writerFor(
+				objectMapper.getTypeFactory().constructCollectionType(List.class, BankSlipDTO.class));
+		reader = objectMapper.readerFor(BankSlipDTO[].class);
+
+		LocalDate dueDate = LocalDate.of(2018, 5, 10);
+
+		bankSlipDTOs = new ArrayList<>(listSize);
+		for (int i = 0; i < listSize; i++) {
+			BankSlipDTO dto = new BankSlipDTO(DateCodec.format(dueDate.plusDays(i % 365)), 100000 + i,
+					"Customer " + (i % 100), BankSlipStatusEnum.values()[i % 3]);
+			dto.setId(TimeOrderedUUIDGenerator.next());
+			if (i % 4 == 0)
+				dto.setFine(500L + i);
+			bankSlipDTOs.add(dto);
+		}
+
+		encoded = writer.writeValueAsBytes(bankSlipDTOs);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.println("format=" + format + " listSize=" + listSize + " bytes=" + encoded.length
+				+ " bytes/slip=" + encoded.length / listSize);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return writer.writeValueAsBytes(bankSlipDTOs);
+	}
+
+	@Benchmark
+	public BankSlipDTO[] decode() throws IOException {
+		return reader.readValue(encoded);
+	}
+
+}
@@ -1,13 +1,106 @@
 package bankslips;
 
+import java.time.Clock;
+import java.util.Arrays;
+
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import bankslips.utils.TimedMethodInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
+@ImportRuntimeHints(ApplicationRuntimeHints.class)
 public class Application {
 	
 	public static void main(String[] args) {
-		SpringApplication.run(Application.class, args);
+		create(args).run(args);
+	}
+	
+	/**
+	 * Cria a aplicacao de acordo com os profiles informados
+	 * 
+	 * Com o profile reactive a API e atendida pelo WebFlux; o tipo da aplicacao
+	 * precisa ser definido antes da criacao do Environment, senao as
+	 * configuracoes do Actuator para servlet tambem sao carregadas.
+	 * 
+	 * @param args
+	 * @return
+	 */
+	public static SpringApplication create(String... args) {
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+		
+		SpringApplication application = new SpringApplication(Application.class);
+		if (Arrays.asList(environment.getActiveProfiles()).contains("reactive"))
+			application.setWebApplicationType(WebApplicationType.REACTIVE);
+		
+		return application;
+	}
+	
+	@Bean
+	public Clock clock() {
+		return Clock.systemDefaultZone();
+	}
+	
+	/**
+	 * Alteracoes do cache (put e evict) feitas dentro de uma transacao sao
+	 * aplicadas apenas apos o commit, e descartadas no rollback: uma remocao
+	 * antes do commit permitiria que uma leitura concorrente devolvesse ao cache
+	 * a versao anterior do boleto
+	 * 
+	 * @return
+	 */
+	@Bean
+	public static BeanPostProcessor transactionAwareCacheManager() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof CaffeineCacheManager
+						? new TransactionAwareCacheManagerProxy((CacheManager) bean)
+						: bean;
+			}
+		};
+	}
+	
+	/**
+	 * Tempos dos metodos anotados com @Timed (servico e handler da API)
+	 * 
+	 * @param registry
+	 * @return
+	 */
+	@Bean
+	public static Advisor timedAdvisor(ObjectProvider<MeterRegistry> registry) {
+		return TimedMethodInterceptor.advisor(registry);
+	}
+	
+	/**
+	 * API reativa servida pelo Netty (com o Tomcat tambem no classpath, o
+	 * Spring Boot escolheria o Tomcat)
+	 * 
+	 * @return
+	 */
+	@Bean
+	@Profile("reactive")
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
 	}
 	
 }
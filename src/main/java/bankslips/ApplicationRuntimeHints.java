@@ -0,0 +1,47 @@
+package bankslips;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import bankslips.data.BankSlip;
+import bankslips.data.CustomerSummary;
+import bankslips.data.OverdueSweepCheckpoint;
+import bankslips.data.dto.BankSlipBatchResultDTO;
+import bankslips.data.dto.BankSlipCborModule;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.data.dto.CustomerSummaryDTO;
+
+/**
+ * Metadados de reflexao para a imagem nativa (profile native do Maven)
+ *
+ * O processamento AOT do Spring ja registra os tipos dos metodos dos
+ * controllers e as entidades JPA; aqui ficam os tipos lidos por reflexao fora
+ * desses pontos: os DTOs lidos e gravados pelo Jackson em outros caminhos
+ * (criacao por stream, journal da gravacao assincrona e formato CBOR), o mixin
+ * e os serializadores CBOR instanciados pelo Jackson e as entidades, declaradas
+ * explicitamente para que nao dependam do escaneamento das entidades.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+	@Override
+	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+		new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BankSlipDTO.class,
+				BankSlipBatchResultDTO.class, CustomerSummaryDTO.class);
+
+		hints.reflection() //
+				.registerType(TypeReference.of(BankSlipCborModule.class.getName() + "$CborMixIn")) //
+				.registerType(BankSlipCborModule.Serializer.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS) //
+				.registerType(BankSlipCborModule.Deserializer.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+
+		for (Class<?> entity : new Class<?>[] { BankSlip.class, CustomerSummary.class, OverdueSweepCheckpoint.class })
+			hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+					MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+	}
+
+}
@@ -1,88 +1,208 @@
 package bankslips.controllers;
 
-import java.text.ParseException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.UUID;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
-import org.springframework.util.StringUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import bankslips.data.BankSlip;
+import bankslips.data.BankSlipFilter;
+import bankslips.data.BankSlipPage;
 import bankslips.data.BankSlipService;
+import bankslips.data.IdempotencyKeyStore;
+import bankslips.data.dto.BankSlipBatchResultDTO;
 import bankslips.data.dto.BankSlipDTO;
-import bankslips.enumerators.BankSlipStatusEnum;
-import bankslips.exceptions.BankSlipInvalidException;
-import bankslips.exceptions.BankSlipInvalidUUIDException;
-import bankslips.exceptions.BankSlipNotFoundException;
-import bankslips.exceptions.BankSlipNotProvidedException;
+import bankslips.data.dto.CustomerSummaryDTO;
+import bankslips.enumerators.BankSlipExportFormatEnum;
 
+/**
+ * API de boletos sobre Spring MVC (servlet); no profile reactive a API e
+ * atendida pelo ReactiveBankSlipController
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Profile("!reactive")
 @RestController
 @RequestMapping("/rest/bankslips")
 public class BankSlipController {
 
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	public static final String NDJSON_VALUE = "application/x-ndjson";
+
+	@Autowired
+	private BankSlipRequestHandler bankSlipRequestHandler;
+
 	@Autowired
 	private BankSlipService bankSlipService;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	/**
 	 * Criar boleto
 	 * 
 	 * Esse método deve receber um novo boleto e inseri-lo em um banco de dados para
 	 * ser consumido pela própria API. Todos os campos são obrigatórios.
 	 * 
+	 * Requisições repetidas com o mesmo header Idempotency-Key recebem o boleto
+	 * criado na primeira requisição, sem criar um novo boleto.
+	 * 
+	 * Com a criação assíncrona habilitada (bankslips.write-behind.enabled) o boleto
+	 * recebe o id e é aceito (202) antes de ser gravado na base; com a fila cheia
+	 * a requisição é recusada (429).
+	 * 
 	 * @param dueDate
 	 * @param totalInCents
 	 * @param customer
 	 * @param status
-	 * @return Boleto gravado na base
+	 * @return Boleto gravado na base (ou aceito para gravação)
 	 */
 	@RequestMapping(method = RequestMethod.POST)
-	@ResponseStatus(code = HttpStatus.CREATED)
-	public BankSlipDTO createBankSlip(@RequestBody BankSlipDTO bankSlipDTO) {
-
-		try {
-			// validacao dos campos obrigatorios
-			if (StringUtils.isEmpty(bankSlipDTO.getDueDate()))
-				throw new BankSlipNotProvidedException();
-
-			if (StringUtils.isEmpty(bankSlipDTO.getTotalInCents()))
-				throw new BankSlipNotProvidedException();
-
-			if (bankSlipDTO.getTotalInCents() <= 0)
-				throw new BankSlipInvalidException();
+	public ResponseEntity<BankSlipDTO> createBankSlip(@RequestBody BankSlipDTO bankSlipDTO,
+			@RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+		return bankSlipRequestHandler.createBankSlip(bankSlipDTO, idempotencyKey);
+	}
 
-			if (StringUtils.isEmpty(bankSlipDTO.getCustomer()))
-				throw new BankSlipNotProvidedException();
+	/**
+	 * Criar boletos em lote
+	 * 
+	 * Esse método deve receber uma lista de boletos, validar cada um com as mesmas
+	 * regras da criação individual e inserir os válidos no banco de dados em uma
+	 * única operação. O resultado é informado por item, na ordem recebida.
+	 * 
+	 * @param bankSlipDTOs
+	 * @return Resultado da criação de cada boleto
+	 */
+	@RequestMapping(path = "/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+	public List<BankSlipBatchResultDTO> createBankSlips(@RequestBody List<BankSlipDTO> bankSlipDTOs) {
+		return bankSlipRequestHandler.createBankSlips(bankSlipDTOs);
+	}
 
-			// salva a entidade no banco de dados
-			BankSlip bankSlip = bankSlipService.save(bankSlipDTO.getEntityToSave());
+	/**
+	 * Criar boletos em lote a partir de um boleto JSON por linha (NDJSON)
+	 * 
+	 * @param request
+	 * @return Resultado da criação de cada boleto
+	 * @throws IOException
+	 */
+	@RequestMapping(path = "/batch", method = RequestMethod.POST, consumes = NDJSON_VALUE)
+	public List<BankSlipBatchResultDTO> createBankSlipsFromStream(HttpServletRequest request) throws IOException {
+		List<BankSlipDTO> bankSlipDTOs = new ArrayList<>();
 
-			return new BankSlipDTO(bankSlip);
+		try (MappingIterator<BankSlipDTO> iterator = objectMapper.readerFor(BankSlipDTO.class)
+				.readValues(request.getInputStream())) {
 
-		} catch (ParseException e) {
-			// erro na conversao da data
-			throw new BankSlipInvalidException();
+			while (iterator.hasNextValue()) {
+				bankSlipRequestHandler.checkBatchSize(bankSlipDTOs.size() + 1);
+				bankSlipDTOs.add(iterator.nextValue());
+			}
+		} catch (JsonProcessingException e) {
+			throw new HttpMessageNotReadableException("Invalid NDJSON body: " + e.getOriginalMessage(), e,
+					new ServletServerHttpRequest(request));
 		}
 
+		return bankSlipRequestHandler.createBankSlips(bankSlipDTOs);
 	}
 
 	/**
 	 * Lista de boletos
 	 * 
-	 * Esse método da API deve retornar uma lista de boletos em formato JSON
+	 * Esse método da API deve retornar uma lista de boletos em formato JSON. <br>
+	 * A lista é paginada por chave (vencimento + id): quando houver mais boletos o
+	 * cursor da próxima página é retornado no header X-Next-Cursor e deve ser
+	 * enviado no parâmetro cursor. O tamanho da página é limitado pelo servidor.
+	 * Cada página tem um ETag; com If-None-Match igual a ele a resposta é 304.
 	 * 
-	 * @return Lista com todos os boletos
+	 * @param status
+	 * @param customer
+	 * @param dueDateFrom
+	 * @param dueDateTo
+	 * @param cursor
+	 * @param limit
+	 * @return Página de boletos
 	 */
 	@RequestMapping(method = RequestMethod.GET)
-	public List<BankSlipDTO> findAllBankSlips() {
-		return bankSlipService.findAllDtos();
+	public ResponseEntity<List<BankSlipDTO>> findAllBankSlips( //
+			@RequestParam(value = "status", required = false) String status, //
+			@RequestParam(value = "customer", required = false) String customer, //
+			@RequestParam(value = "due_date_from", required = false) String dueDateFrom, //
+			@RequestParam(value = "due_date_to", required = false) String dueDateTo, //
+			@RequestParam(value = "cursor", required = false) String cursor, //
+			@RequestParam(value = "limit", required = false) Integer limit, WebRequest request) {
+
+		BankSlipFilter filter = bankSlipRequestHandler.getFilter(status, customer, dueDateFrom, dueDateTo, cursor,
+				limit);
+		BankSlipPage page = bankSlipRequestHandler.findPage(filter);
+
+		// pagina inalterada: 304 sem serializar os boletos
+		if (request.checkNotModified(page.getETag()))
+			return null;
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(page.getETag());
+		if (page.getNext() != null)
+			response.header(NEXT_CURSOR_HEADER, page.getNext().encode());
+
+		return response.body(page.getContent());
+	}
+
+	/**
+	 * Exportar boletos
+	 * 
+	 * Esse método da API deve retornar todos os boletos, um por linha, em formato
+	 * JSON (NDJSON) ou CSV. Os boletos são escritos na resposta conforme são lidos
+	 * da base, sem carregar a lista completa em memória.
+	 * 
+	 * @param format
+	 *            ndjson (padrão) ou csv
+	 * @param response
+	 * @throws IOException
+	 */
+	@RequestMapping(path = "/export", method = RequestMethod.GET)
+	public void exportBankSlips(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+			HttpServletResponse response) throws IOException {
+
+		BankSlipExportFormatEnum exportFormat = bankSlipRequestHandler.getExportFormat(format);
+
+		response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+
+		bankSlipService.export(exportFormat, response.getOutputStream());
+	}
+
+	/**
+	 * Resumo dos boletos de um cliente
+	 * 
+	 * Esse método da API deve retornar a quantidade e o valor total em centavos dos
+	 * boletos pendentes, pagos e cancelados do cliente. Os totais são mantidos a
+	 * cada criação, pagamento ou cancelamento, sem percorrer os boletos.
+	 * 
+	 * @param customer
+	 * @return Resumo do cliente
+	 */
+	@RequestMapping(path = "/summary", method = RequestMethod.GET)
+	public CustomerSummaryDTO getCustomerSummary(@RequestParam(value = "customer", required = false) String customer) {
+		return bankSlipRequestHandler.getCustomerSummary(customer);
 	}
 
 	/**
@@ -93,39 +213,37 @@ public class BankSlipController {
 	 * Regra para o cálculo da multa aplicada por dia para os boletos atrasados:
 	 * <br>
 	 * - Até 10 dias: Multa de 0,5% (Juros Simples) <br>
-	 * - Acima de 10 dias: Multa de 1% (Juros Simples)
+	 * - Acima de 10 dias: Multa de 1% (Juros Simples) <br>
+	 * O ETag muda com a versão do boleto e com a faixa de multa; com
+	 * If-None-Match igual a ele a resposta é 304, sem carregar o boleto.
 	 * 
 	 * @param id
 	 * @return Boleto de acordo com id
 	 */
 	@RequestMapping(path = "/{id}", method = RequestMethod.GET)
-	public BankSlipDTO getBankSlipById(@PathVariable(value = "id") String id) {
-		try {
-			BankSlipDTO bankSlipDTO = bankSlipService.findById(UUID.fromString(id));
-
-			// verifica se ha atraso no boleto
-			bankSlipDTO.verifyOverDueAndUpdateFine();
-
-			return bankSlipDTO;
-		} catch (IllegalArgumentException e) {
-			throw new BankSlipInvalidUUIDException();
-		} catch (NoSuchElementException e) {
-			throw new BankSlipNotFoundException();
-		}
+	public ResponseEntity<BankSlipDTO> getBankSlipById(@PathVariable(value = "id") String id, WebRequest request) {
+		// boleto inalterado: 304 sem carregar nem serializar o boleto
+		String eTag = bankSlipRequestHandler.getBankSlipETag(id);
+		if (request.checkNotModified(eTag))
+			return null;
+
+		return ResponseEntity.ok().eTag(eTag).body(bankSlipRequestHandler.getBankSlipById(id));
 	}
 
 	/**
 	 * Pagar um boleto
 	 * 
 	 * Esse método da API deve alterar o status do boleto para PAID de acordo com o
-	 * id.
+	 * id. Requisições repetidas com o mesmo header Idempotency-Key recebem a
+	 * resposta do primeiro pagamento.
 	 * 
 	 * @param id
 	 * @return Boleto atualizado
 	 */
 	@RequestMapping(path = "/{id}/pay", method = RequestMethod.PUT)
-	public BankSlipDTO payBankSlip(@PathVariable(value = "id") String id) {
-		return updateBankSlipStatus(id, BankSlipStatusEnum.PAID);
+	public BankSlipDTO payBankSlip(@PathVariable(value = "id") String id,
+			@RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+		return bankSlipRequestHandler.payBankSlip(id, idempotencyKey);
 	}
 
 	/**
@@ -139,33 +257,7 @@ public class BankSlipController {
 	 */
 	@RequestMapping(path = "/{id}/cancel", method = RequestMethod.DELETE)
 	public BankSlipDTO cancelBankSlip(@PathVariable(value = "id") String id) {
-		return updateBankSlipStatus(id, BankSlipStatusEnum.CANCELED);
-	}
-
-	/**
-	 * Atualiza o status do boleto de acordo com id
-	 * 
-	 * @param id
-	 * @param status
-	 * @return Boleto atualizado
-	 */
-	private BankSlipDTO updateBankSlipStatus(String id, BankSlipStatusEnum status) {
-		// recupera o boleto da base
-		BankSlipDTO bankSlipDTO = getBankSlipById(id);
-
-		// muda o status do boleto
-		bankSlipDTO.setStatus(status);
-
-		// salva a entidade no banco de dados
-		try {
-			bankSlipService.save(bankSlipDTO.getEntityToSave());
-		} catch (ParseException e) {
-			// erro na conversao da data
-			// (nesse caso nao ocorrera a menos que haja inconsistencia nos dados)
-			throw new BankSlipInvalidException();
-		}
-
-		return bankSlipDTO;
+		return bankSlipRequestHandler.cancelBankSlip(id);
 	}
 
 }
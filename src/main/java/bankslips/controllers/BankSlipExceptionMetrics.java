@@ -0,0 +1,64 @@
+package bankslips.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Contador das excecoes que chegam a API (BankSlip*Exception e demais), com o
+ * nome da excecao na tag exception
+ *
+ * Registrado antes dos tratadores de erro das APIs servlet e reativa; apenas
+ * conta a excecao e a repassa, sem alterar a resposta.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+public class BankSlipExceptionMetrics implements HandlerExceptionResolver, WebExceptionHandler, Ordered {
+
+	/**
+	 * Contador das excecoes (tag exception)
+	 */
+	public static final String METRIC = "bankslips.exceptions";
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		count(ex);
+		return null;
+	}
+
+	@Override
+	public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+		count(ex);
+		return Mono.error(ex);
+	}
+
+	private void count(Throwable ex) {
+		Counter.builder(METRIC) //
+				.tag("exception", ex.getClass().getSimpleName()) //
+				.register(registry) //
+				.increment();
+	}
+
+}
@@ -0,0 +1,380 @@
+package bankslips.controllers;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipCursor;
+import bankslips.data.BankSlipFilter;
+import bankslips.data.BankSlipPage;
+import bankslips.data.BankSlipService;
+import bankslips.data.BankSlipShards;
+import bankslips.data.BankSlipWriteBehindQueue;
+import bankslips.data.CustomerSummaryService;
+import bankslips.data.FineCalculator;
+import bankslips.data.IdempotencyKeyStore;
+import bankslips.data.dto.BankSlipBatchResultDTO;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.data.dto.CustomerSummaryDTO;
+import bankslips.enumerators.BankSlipExportFormatEnum;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.exceptions.BankSlipBatchTooLargeException;
+import bankslips.exceptions.BankSlipInvalidException;
+import bankslips.exceptions.BankSlipInvalidQueryException;
+import bankslips.exceptions.BankSlipInvalidUUIDException;
+import bankslips.exceptions.BankSlipNotFoundException;
+import bankslips.exceptions.BankSlipNotProvidedException;
+import bankslips.exceptions.BankSlipStatusTransitionException;
+import bankslips.utils.DateCodec;
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * Regras das requisicoes da API de boletos, independentes da pilha web
+ * 
+ * Usado pelo controller Spring MVC (BankSlipController) e pelo controller
+ * reativo (ReactiveBankSlipController), que apenas adaptam a requisicao e a
+ * resposta; os metodos sao bloqueantes (acessam a base via JPA).
+ * 
+ * O tempo de cada metodo e registrado no timer bankslips.handler: a diferenca
+ * para o bankslips.service e a conversao dos DTOs e o calculo da multa.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+@Timed(BankSlipRequestHandler.METRIC)
+public class BankSlipRequestHandler {
+
+	/**
+	 * Timer dos metodos do handler (tag method)
+	 */
+	public static final String METRIC = "bankslips.handler";
+
+	/**
+	 * Mensagem dos boletos de um lote nao gravados pela falha do seu shard
+	 */
+	public static final String NOT_SAVED_MESSAGE = "Bankslip not saved - it can be sent again";
+
+	@Autowired
+	private BankSlipService bankSlipService;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	@Autowired
+	private BankSlipWriteBehindQueue bankSlipWriteBehindQueue;
+
+	@Autowired
+	private CustomerSummaryService customerSummaryService;
+
+	@Autowired
+	private FineCalculator fineCalculator;
+
+	@Autowired
+	private IdempotencyKeyStore idempotencyKeyStore;
+
+	@Value("${bankslips.batch.max-size:10000}")
+	private int maxBatchSize;
+
+	@Value("${bankslips.page.default-size:100}")
+	private int defaultPageSize;
+
+	@Value("${bankslips.page.max-size:1000}")
+	private int maxPageSize;
+
+	/**
+	 * Cria o boleto (ou o aceita para gravacao assincrona)
+	 * 
+	 * @param bankSlipDTO
+	 * @param idempotencyKey
+	 * @return
+	 */
+	public ResponseEntity<BankSlipDTO> createBankSlip(BankSlipDTO bankSlipDTO, String idempotencyKey) {
+		// campos do boleto recebido, comparados com os da requisicao original
+		List<Object> request = Arrays.asList(bankSlipDTO.getDueDate(), bankSlipDTO.getTotalInCents(),
+				bankSlipDTO.getCustomer(), bankSlipDTO.getStatus());
+
+		return idempotencyKeyStore.execute("create", idempotencyKey, request, () -> {
+			BankSlip bankSlip = getValidEntityToSave(bankSlipDTO);
+
+			if (bankSlipWriteBehindQueue.isEnabled()) {
+				// gravacao em lote pelas threads da fila
+				bankSlipShards.assignId(bankSlip);
+				bankSlipWriteBehindQueue.submit(bankSlip);
+
+				return ResponseEntity.status(HttpStatus.ACCEPTED).body(new BankSlipDTO(bankSlip));
+			}
+
+			// salva a entidade no banco de dados
+			bankSlip = bankSlipService.save(bankSlip);
+
+			return ResponseEntity.status(HttpStatus.CREATED).body(new BankSlipDTO(bankSlip));
+		});
+	}
+
+	/**
+	 * Valida e insere um lote de boletos, registrando o resultado de cada item
+	 * 
+	 * Com shards o lote nao e atomico: se apenas parte dos shards falhar, os
+	 * boletos dos demais sao gravados e os do shard que falhou recebem o status
+	 * 500, sem id. Se nenhum boleto for gravado, a falha e lancada.
+	 * 
+	 * @param bankSlipDTOs
+	 * @return
+	 */
+	public List<BankSlipBatchResultDTO> createBankSlips(List<BankSlipDTO> bankSlipDTOs) {
+		checkBatchSize(bankSlipDTOs.size());
+
+		BankSlipBatchResultDTO[] results = new BankSlipBatchResultDTO[bankSlipDTOs.size()];
+		List<BankSlip> bankSlips = new ArrayList<>(bankSlipDTOs.size());
+		List<Integer> indexes = new ArrayList<>(bankSlipDTOs.size());
+
+		for (int i = 0; i < bankSlipDTOs.size(); i++) {
+			try {
+				bankSlips.add(getValidEntityToSave(bankSlipDTOs.get(i)));
+				indexes.add(i);
+			} catch (BankSlipNotProvidedException e) {
+				results[i] = new BankSlipBatchResultDTO(i, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+			} catch (BankSlipInvalidException e) {
+				results[i] = new BankSlipBatchResultDTO(i, HttpStatus.UNPROCESSABLE_ENTITY.value(), null,
+						e.getMessage());
+			}
+		}
+
+		// salva as entidades validas no banco de dados; com shards, os boletos de
+		// um shard que falhou nao sao gravados e podem ser reenviados
+		List<RuntimeException> failures = bankSlipService.saveAll(bankSlips);
+
+		for (int i = 0; i < bankSlips.size(); i++) {
+			int index = indexes.get(i);
+			if (failures.get(i) == null)
+				results[index] = new BankSlipBatchResultDTO(index, HttpStatus.CREATED.value(),
+						bankSlips.get(i).getId(), null);
+			else
+				results[index] = new BankSlipBatchResultDTO(index, HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+						NOT_SAVED_MESSAGE);
+		}
+
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Recusa lotes acima do tamanho maximo
+	 * 
+	 * @param size
+	 */
+	public void checkBatchSize(int size) {
+		if (size > maxBatchSize)
+			throw new BankSlipBatchTooLargeException(maxBatchSize);
+	}
+
+	/**
+	 * Monta o filtro da listagem a partir dos parametros da requisicao
+	 * 
+	 * @return
+	 */
+	public BankSlipFilter getFilter(String status, String customer, String dueDateFrom, String dueDateTo,
+			String cursor, Integer limit) {
+
+		BankSlipFilter filter = new BankSlipFilter();
+		try {
+			if (StringUtils.hasLength(status))
+				filter.setStatus(BankSlipStatusEnum.valueOf(status));
+
+			if (StringUtils.hasLength(dueDateFrom))
+				filter.setDueDateFrom(DateCodec.parse(dueDateFrom));
+
+			if (StringUtils.hasLength(dueDateTo))
+				filter.setDueDateTo(DateCodec.parse(dueDateTo));
+
+			if (StringUtils.hasLength(cursor))
+				filter.setAfter(BankSlipCursor.decode(cursor));
+
+		} catch (IllegalArgumentException | ParseException e) {
+			throw new BankSlipInvalidQueryException();
+		}
+
+		if (limit != null && limit <= 0)
+			throw new BankSlipInvalidQueryException();
+
+		filter.setCustomer(customer);
+		filter.setLimit(limit == null ? defaultPageSize : Math.min(limit, maxPageSize));
+
+		return filter;
+	}
+
+	public BankSlipPage findPage(BankSlipFilter filter) {
+		return bankSlipService.findPage(filter);
+	}
+
+	/**
+	 * Formato de exportacao informado na requisicao
+	 * 
+	 * @param format
+	 * @return
+	 */
+	public BankSlipExportFormatEnum getExportFormat(String format) {
+		try {
+			return BankSlipExportFormatEnum.valueOf(format.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new BankSlipInvalidQueryException();
+		}
+	}
+
+	/**
+	 * Resumo dos boletos do cliente
+	 * 
+	 * @param customer
+	 * @return
+	 */
+	public CustomerSummaryDTO getCustomerSummary(String customer) {
+		if (!StringUtils.hasLength(customer))
+			throw new BankSlipInvalidQueryException();
+
+		return customerSummaryService.findByCustomer(customer);
+	}
+
+	/**
+	 * ETag dos detalhes do boleto, sem carregar o boleto da base
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public String getBankSlipETag(String id) {
+		return bankSlipService.findVersion(parseId(id)) //
+				.orElseThrow(BankSlipNotFoundException::new) //
+				.eTag(fineCalculator);
+	}
+
+	/**
+	 * Boleto de acordo com o id, com a multa calculada para boletos atrasados
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public BankSlipDTO getBankSlipById(String id) {
+		UUID uuid = parseId(id);
+
+		try {
+			BankSlipDTO bankSlipDTO = bankSlipService.findById(uuid);
+
+			// verifica se ha atraso no boleto
+			bankSlipDTO.verifyOverDueAndUpdateFine(fineCalculator);
+
+			return bankSlipDTO;
+		} catch (NoSuchElementException e) {
+			throw new BankSlipNotFoundException();
+		}
+	}
+
+	/**
+	 * Paga o boleto; requisicoes repetidas com a mesma chave de idempotencia
+	 * recebem a resposta do primeiro pagamento
+	 * 
+	 * @param id
+	 * @param idempotencyKey
+	 * @return
+	 */
+	public BankSlipDTO payBankSlip(String id, String idempotencyKey) {
+		return idempotencyKeyStore.execute("pay", idempotencyKey, parseId(id),
+				() -> updateBankSlipStatus(id, BankSlipStatusEnum.PAID));
+	}
+
+	public BankSlipDTO cancelBankSlip(String id) {
+		return updateBankSlipStatus(id, BankSlipStatusEnum.CANCELED);
+	}
+
+	/**
+	 * Valida os campos obrigatorios do boleto e cria a Entity para salvamento
+	 * 
+	 * @param bankSlipDTO
+	 * @return
+	 */
+	private BankSlip getValidEntityToSave(BankSlipDTO bankSlipDTO) {
+		try {
+			// validacao dos campos obrigatorios
+			if (bankSlipDTO == null)
+				throw new BankSlipNotProvidedException();
+
+			if (!StringUtils.hasLength(bankSlipDTO.getDueDate()))
+				throw new BankSlipNotProvidedException();
+
+			if (bankSlipDTO.getTotalInCents() == null)
+				throw new BankSlipNotProvidedException();
+
+			if (bankSlipDTO.getTotalInCents() <= 0)
+				throw new BankSlipInvalidException();
+
+			if (!StringUtils.hasLength(bankSlipDTO.getCustomer()))
+				throw new BankSlipNotProvidedException();
+
+			// limites das colunas: um boleto aceito para gravacao assincrona nao
+			// pode ser recusado pela base
+			if (bankSlipDTO.getCustomer().length() > BankSlip.CUSTOMER_MAX_LENGTH)
+				throw new BankSlipInvalidException();
+
+			return bankSlipDTO.getEntityToSave();
+
+		} catch (ParseException e) {
+			// erro na conversao da data
+			throw new BankSlipInvalidException();
+		}
+	}
+
+	/**
+	 * Atualiza o status do boleto de acordo com id
+	 * 
+	 * A alteracao e feita em um unico comando na base, que so altera boletos
+	 * pendentes; chamadas concorrentes nao conseguem alterar o mesmo boleto duas
+	 * vezes.
+	 * 
+	 * @param id
+	 * @param status
+	 * @return Boleto atualizado, com a multa de atraso (se houver)
+	 */
+	private BankSlipDTO updateBankSlipStatus(String id, BankSlipStatusEnum status) {
+		UUID uuid = parseId(id);
+
+		try {
+			// altera o status apenas se o boleto estiver pendente
+			boolean updated = bankSlipService.updateStatus(uuid, status);
+
+			BankSlipDTO bankSlipDTO = bankSlipService.findById(uuid);
+			if (!updated)
+				throw new BankSlipStatusTransitionException(bankSlipDTO.getStatus(), status);
+
+			// multa calculada antes da alteracao, com o boleto ainda pendente
+			bankSlipDTO.updateFine(fineCalculator);
+
+			return bankSlipDTO;
+		} catch (NoSuchElementException e) {
+			throw new BankSlipNotFoundException();
+		}
+	}
+
+	/**
+	 * Converte o id recebido na requisicao
+	 * 
+	 * @param id
+	 * @return
+	 */
+	private UUID parseId(String id) {
+		try {
+			return UUID.fromString(id);
+		} catch (IllegalArgumentException e) {
+			throw new BankSlipInvalidUUIDException();
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package bankslips.controllers;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bankslips.data.dto.BankSlipCborModule;
+
+/**
+ * Negociacao de conteudo do formato binario (Accept/Content-Type
+ * application/cbor) nas APIs servlet e reativa; o JSON continua sendo o
+ * formato padrao
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Configuration
+public class CborConfiguration {
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+		return new MappingJackson2CborHttpMessageConverter(cborObjectMapper());
+	}
+
+	@Bean
+	public CodecCustomizer cborCodecCustomizer(ObjectMapper objectMapper) {
+		ObjectMapper cborObjectMapper = cborObjectMapper();
+
+		// os codecs registrados aqui ficam antes dos padrao: o JSON e repetido
+		// na frente para continuar sendo o formato escolhido quando o cliente
+		// nao pede um formato especifico
+		return configurer -> {
+			configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+			configurer.customCodecs().register(new Jackson2JsonDecoder(objectMapper));
+			configurer.customCodecs().register(new Jackson2CborEncoder(cborObjectMapper));
+			configurer.customCodecs().register(new Jackson2CborDecoder(cborObjectMapper));
+		};
+	}
+
+	private static ObjectMapper cborObjectMapper() {
+		return Jackson2ObjectMapperBuilder.cbor().modulesToInstall(new BankSlipCborModule()).build();
+	}
+
+}
@@ -2,12 +2,15 @@ package bankslips.controllers;
 
 import java.util.Map;
 
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.error.ErrorAttributeOptions.Include;
 import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.ServletWebRequest;
@@ -18,6 +21,7 @@ import org.springframework.web.context.request.ServletWebRequest;
  * @author Armando Almeida <jose@armandoalmeida.com.br>
  *
  */
+@Profile("!reactive")
 @RestController
 public class CustomErrorController implements ErrorController {
 
@@ -28,17 +32,12 @@ public class CustomErrorController implements ErrorController {
 
 	@RequestMapping(value = PATH)
 	ErrorJson error(HttpServletRequest request, HttpServletResponse response) {
-		return new ErrorJson(response.getStatus(), getErrorAttributes(request, false));
+		return new ErrorJson(response.getStatus(), getErrorAttributes(request));
 	}
 
-	@Override
-	public String getErrorPath() {
-		return PATH;
-	}
-
-	private Map<String, Object> getErrorAttributes(HttpServletRequest request, boolean includeStackTrace) {
+	private Map<String, Object> getErrorAttributes(HttpServletRequest request) {
 		ServletWebRequest servletWebRequest = new ServletWebRequest(request);
-		return errorAttributes.getErrorAttributes(servletWebRequest, includeStackTrace);
+		return errorAttributes.getErrorAttributes(servletWebRequest, ErrorAttributeOptions.of(Include.MESSAGE));
 	}
 
 	public class ErrorJson {
@@ -0,0 +1,302 @@
+package bankslips.controllers;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bankslips.data.BankSlipCursor;
+import bankslips.data.BankSlipFilter;
+import bankslips.data.BankSlipPage;
+import bankslips.data.BankSlipService;
+import bankslips.data.IdempotencyKeyStore;
+import bankslips.data.dto.BankSlipBatchResultDTO;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.data.dto.CustomerSummaryDTO;
+import bankslips.enumerators.BankSlipExportFormatEnum;
+import bankslips.exceptions.BankSlipNotProvidedException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * API de boletos sobre Spring WebFlux (profile reactive)
+ * 
+ * Mesmo contrato do BankSlipController. Apenas a camada HTTP e nao bloqueante:
+ * as requisicoes sao atendidas pelas threads de I/O do servidor, sem uma thread
+ * por conexao, e os acessos a base continuam sendo feitos pelo BankSlipService
+ * (JPA, bloqueante) em um pool do tamanho do pool de conexoes. Conexoes
+ * aguardando a base nao ocupam threads, mas a base continua limitando a
+ * concorrencia.
+ * 
+ * Nao ha acesso a base por R2DBC: a remocao do cache apos o commit, os resumos
+ * por cliente na transacao do boleto, os shards, as replicas de leitura e a
+ * gravacao assincrona dependem das transacoes JPA, e teriam de ser refeitos
+ * sobre outra API. Com o H2 embarcado, o driver r2dbc-h2 tambem executa os
+ * comandos na thread que os consome, que seria uma thread de I/O.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Profile("reactive")
+@RestController
+@RequestMapping("/rest/bankslips")
+public class ReactiveBankSlipController {
+
+	/**
+	 * Boletos lidos da base por vez na exportacao
+	 */
+	private static final int EXPORT_PAGE_SIZE = 1000;
+
+	@Autowired
+	private BankSlipRequestHandler bankSlipRequestHandler;
+
+	@Autowired
+	private BankSlipService bankSlipService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final Scheduler databaseScheduler;
+
+	@Autowired
+	public ReactiveBankSlipController(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+		this.databaseScheduler = Schedulers.fromExecutorService(Executors.newFixedThreadPool(poolSize));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		databaseScheduler.dispose();
+	}
+
+	/**
+	 * Criar boleto
+	 * 
+	 * @param bankSlipDTO
+	 * @param idempotencyKey
+	 * @return Boleto gravado na base (ou aceito para gravação)
+	 */
+	@RequestMapping(method = RequestMethod.POST)
+	public Mono<ResponseEntity<BankSlipDTO>> createBankSlip(@RequestBody(required = false) Mono<BankSlipDTO> bankSlipDTO,
+			@RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+
+		return bankSlipDTO //
+				.switchIfEmpty(Mono.error(new BankSlipNotProvidedException())) //
+				.flatMap(body -> database(() -> bankSlipRequestHandler.createBankSlip(body, idempotencyKey)));
+	}
+
+	/**
+	 * Criar boletos em lote
+	 * 
+	 * O array é decodificado boleto a boleto, então o limite de memória do
+	 * codec vale para cada boleto e não para o lote inteiro.
+	 * 
+	 * @param bankSlipDTOs
+	 * @return Resultado da criação de cada boleto
+	 */
+	@RequestMapping(path = "/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<List<BankSlipBatchResultDTO>> createBankSlips(@RequestBody Flux<BankSlipDTO> bankSlipDTOs) {
+		return readBatch(bankSlipDTOs).flatMap(body -> database(() -> bankSlipRequestHandler.createBankSlips(body)));
+	}
+
+	/**
+	 * Criar boletos em lote a partir de um boleto JSON por linha (NDJSON)
+	 * 
+	 * @param bankSlipDTOs
+	 * @return Resultado da criação de cada boleto
+	 */
+	@RequestMapping(path = "/batch", method = RequestMethod.POST, consumes = BankSlipController.NDJSON_VALUE)
+	public Mono<List<BankSlipBatchResultDTO>> createBankSlipsFromStream(@RequestBody Flux<BankSlipDTO> bankSlipDTOs) {
+		return readBatch(bankSlipDTOs).flatMap(body -> database(() -> bankSlipRequestHandler.createBankSlips(body)));
+	}
+
+	/**
+	 * Lista de boletos
+	 * 
+	 * A página é lida da base e enviada boleto a boleto; o cursor da próxima
+	 * página segue no header X-Next-Cursor. Com If-None-Match igual ao ETag da
+	 * página a resposta é 304, sem corpo.
+	 * 
+	 * @return Página de boletos
+	 */
+	@RequestMapping(method = RequestMethod.GET)
+	public Mono<ResponseEntity<Flux<BankSlipDTO>>> findAllBankSlips( //
+			@RequestParam(value = "status", required = false) String status, //
+			@RequestParam(value = "customer", required = false) String customer, //
+			@RequestParam(value = "due_date_from", required = false) String dueDateFrom, //
+			@RequestParam(value = "due_date_to", required = false) String dueDateTo, //
+			@RequestParam(value = "cursor", required = false) String cursor, //
+			@RequestParam(value = "limit", required = false) Integer limit, ServerWebExchange exchange) {
+
+		BankSlipFilter filter = bankSlipRequestHandler.getFilter(status, customer, dueDateFrom, dueDateTo, cursor,
+				limit);
+
+		return database(() -> bankSlipRequestHandler.findPage(filter)).flatMap(page -> {
+			if (exchange.checkNotModified(page.getETag()))
+				return Mono.empty();
+
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(page.getETag());
+			if (page.getNext() != null)
+				response.header(BankSlipController.NEXT_CURSOR_HEADER, page.getNext().encode());
+
+			return Mono.just(response.body(Flux.fromIterable(page.getContent())));
+		});
+	}
+
+	/**
+	 * Exportar boletos
+	 * 
+	 * Os boletos são lidos em páginas (vencimento + id) conforme o cliente consome
+	 * a resposta.
+	 * 
+	 * @param format
+	 *            ndjson (padrão) ou csv
+	 * @return
+	 */
+	@RequestMapping(path = "/export", method = RequestMethod.GET)
+	public ResponseEntity<Flux<String>> exportBankSlips(
+			@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+
+		BankSlipExportFormatEnum exportFormat = bankSlipRequestHandler.getExportFormat(format);
+
+		Flux<String> lines = database(() -> findExportPage(null)) //
+				.expand(page -> page.getNext() == null ? Mono.empty() : database(() -> findExportPage(page.getNext())))
+				.concatMapIterable(BankSlipPage::getContent) //
+				.map(bankSlipDTO -> exportFormat == BankSlipExportFormatEnum.CSV ? toCsv(bankSlipDTO)
+						: toNdjson(bankSlipDTO));
+
+		if (exportFormat == BankSlipExportFormatEnum.CSV)
+			lines = Flux.concat(Mono.just(BankSlipService.CSV_HEADER), lines);
+
+		return ResponseEntity.ok() //
+				.contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8")) //
+				.body(lines);
+	}
+
+	/**
+	 * Resumo dos boletos de um cliente
+	 * 
+	 * @param customer
+	 * @return Resumo do cliente
+	 */
+	@RequestMapping(path = "/summary", method = RequestMethod.GET)
+	public Mono<CustomerSummaryDTO> getCustomerSummary(
+			@RequestParam(value = "customer", required = false) String customer) {
+		return database(() -> bankSlipRequestHandler.getCustomerSummary(customer));
+	}
+
+	/**
+	 * Ver detalhes de um boleto
+	 * 
+	 * Com If-None-Match igual ao ETag atual a resposta é 304, sem carregar o
+	 * boleto.
+	 * 
+	 * @param id
+	 * @return Boleto de acordo com id
+	 */
+	@RequestMapping(path = "/{id}", method = RequestMethod.GET)
+	public Mono<ResponseEntity<BankSlipDTO>> getBankSlipById(@PathVariable(value = "id") String id,
+			ServerWebExchange exchange) {
+		return database(() -> bankSlipRequestHandler.getBankSlipETag(id)).flatMap(eTag -> {
+			if (exchange.checkNotModified(eTag))
+				return Mono.empty();
+
+			return database(() -> ResponseEntity.ok().eTag(eTag).body(bankSlipRequestHandler.getBankSlipById(id)));
+		});
+	}
+
+	/**
+	 * Pagar um boleto
+	 * 
+	 * @param id
+	 * @param idempotencyKey
+	 * @return Boleto atualizado
+	 */
+	@RequestMapping(path = "/{id}/pay", method = RequestMethod.PUT)
+	public Mono<BankSlipDTO> payBankSlip(@PathVariable(value = "id") String id,
+			@RequestHeader(value = IdempotencyKeyStore.HEADER, required = false) String idempotencyKey) {
+		return database(() -> bankSlipRequestHandler.payBankSlip(id, idempotencyKey));
+	}
+
+	/**
+	 * Cancelar um boleto
+	 * 
+	 * @param id
+	 * @return Boleto atualizado
+	 */
+	@RequestMapping(path = "/{id}/cancel", method = RequestMethod.DELETE)
+	public Mono<BankSlipDTO> cancelBankSlip(@PathVariable(value = "id") String id) {
+		return database(() -> bankSlipRequestHandler.cancelBankSlip(id));
+	}
+
+	/**
+	 * Executa o acesso (bloqueante) a base no pool de conexoes
+	 * 
+	 * @param call
+	 * @return
+	 */
+	private <T> Mono<T> database(Callable<T> call) {
+		return Mono.fromCallable(call).subscribeOn(databaseScheduler);
+	}
+
+	private BankSlipPage findExportPage(BankSlipCursor after) {
+		BankSlipFilter filter = new BankSlipFilter();
+		filter.setAfter(after);
+		filter.setLimit(EXPORT_PAGE_SIZE);
+
+		return bankSlipRequestHandler.findPage(filter);
+	}
+
+	/**
+	 * Junta os boletos decodificados do corpo, recusando o lote assim que passar
+	 * do tamanho maximo
+	 */
+	private Mono<List<BankSlipDTO>> readBatch(Flux<BankSlipDTO> bankSlipDTOs) {
+		return bankSlipDTOs.index().map(indexed -> {
+			bankSlipRequestHandler.checkBatchSize((int) (indexed.getT1() + 1));
+			return indexed.getT2();
+		}).collectList();
+	}
+
+	private String toNdjson(BankSlipDTO bankSlipDTO) {
+		try {
+			return objectMapper.writeValueAsString(bankSlipDTO) + '\n';
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String toCsv(BankSlipDTO bankSlipDTO) {
+		StringWriter writer = new StringWriter();
+		try {
+			bankSlipService.writeCsv(writer, bankSlipDTO);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return writer.toString();
+	}
+
+}
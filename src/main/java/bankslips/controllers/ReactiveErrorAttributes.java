@@ -0,0 +1,47 @@
+package bankslips.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.boot.web.error.ErrorAttributeOptions.Include;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * Respostas de erro da API reativa no mesmo formato JSON da API servlet
+ * (CustomErrorController): apenas status e message
+ * 
+ * O status das exceções anotadas com @ResponseStatus e respeitado, como no
+ * Spring MVC.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Profile("reactive")
+@Component
+public class ReactiveErrorAttributes extends DefaultErrorAttributes {
+
+	@Override
+	public Map<String, Object> getErrorAttributes(ServerRequest request, ErrorAttributeOptions options) {
+		Map<String, Object> defaultAttributes = super.getErrorAttributes(request,
+				ErrorAttributeOptions.of(Include.STATUS, Include.MESSAGE));
+
+		Object status = defaultAttributes.get("status");
+		ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(getError(request).getClass(),
+				ResponseStatus.class);
+		if (responseStatus != null)
+			status = responseStatus.code().value();
+
+		Map<String, Object> errorAttributes = new LinkedHashMap<>();
+		errorAttributes.put("status", status);
+		errorAttributes.put("message", defaultAttributes.get("message"));
+
+		return errorAttributes;
+	}
+
+}
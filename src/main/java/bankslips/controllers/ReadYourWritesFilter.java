@@ -0,0 +1,59 @@
+package bankslips.controllers;
+
+import java.io.IOException;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import bankslips.data.ReadYourWrites;
+
+/**
+ * Session token das replicas de leitura (header Session-Token)
+ *
+ * As respostas das requisições que gravam algo trazem no header a posição da
+ * escrita; requisições seguintes com o mesmo header só leem de réplicas que já
+ * receberam essa escrita (ou do primário). Um token inválido é tratado como
+ * posição desconhecida, e as leituras vão para o primário.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "bankslips.replicas.urls")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	public static final String HEADER = "Session-Token";
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		ReadYourWrites.begin(requiredPosition(request.getHeader(HEADER)), position -> {
+			if (!response.isCommitted())
+				response.setHeader(HEADER, Long.toString(position));
+		});
+
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ReadYourWrites.end();
+		}
+	}
+
+	private static long requiredPosition(String token) {
+		if (token == null)
+			return 0;
+
+		try {
+			return Long.parseLong(token.trim());
+		} catch (NumberFormatException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+}
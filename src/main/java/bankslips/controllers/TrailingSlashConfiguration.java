@@ -0,0 +1,41 @@
+package bankslips.controllers;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Mantem as URLs com barra no final (ex.: POST /rest/bankslips/) atendidas
+ * pelos mesmos mapeamentos, como antes do Spring 6, nas APIs servlet e
+ * reativa
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Configuration
+@SuppressWarnings("deprecation")
+public class TrailingSlashConfiguration {
+
+	@Bean
+	public WebMvcConfigurer trailingSlashWebMvcConfigurer() {
+		return new WebMvcConfigurer() {
+			@Override
+			public void configurePathMatch(PathMatchConfigurer configurer) {
+				configurer.setUseTrailingSlashMatch(true);
+			}
+		};
+	}
+
+	@Bean
+	public WebFluxConfigurer trailingSlashWebFluxConfigurer() {
+		return new WebFluxConfigurer() {
+			@Override
+			public void configurePathMatching(org.springframework.web.reactive.config.PathMatchConfigurer configurer) {
+				configurer.setUseTrailingSlashMatch(true);
+			}
+		};
+	}
+
+}
@@ -1,35 +1,71 @@
 package bankslips.data;
 
 import java.io.Serializable;
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.UUID;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import bankslips.enumerators.BankSlipStatusEnum;
 
 @Entity
+@Table(indexes = { //
+		@Index(name = "idx_bank_slip_status_due_date", columnList = "status, dueDate, id"), //
+		@Index(name = "idx_bank_slip_customer_due_date", columnList = "customer, dueDate, id"), //
+		@Index(name = "idx_bank_slip_fine_tier_status_due_date", columnList = "fineTier, status, dueDate, id") })
 public class BankSlip implements Serializable {
 
 	private static final long serialVersionUID = -7029810253422390838L;
 
+	/**
+	 * Tamanho da coluna customer (varchar(255))
+	 */
+	public static final int CUSTOMER_MAX_LENGTH = 255;
+
+	// atribuido antes do insert (ver assignId); boletos da criacao assincrona ja
+	// chegam com o id
 	@Id
-	@GeneratedValue(generator = "UUID")
-	@GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-	@Column(name = "id", updatable = false, nullable = false)
+	@JdbcTypeCode(SqlTypes.BINARY)
+	@Column(name = "id", updatable = false, nullable = false, columnDefinition = "binary(16)")
 	private UUID id;
 
-	@Column
-	private Date dueDate;
-	@Column
-	private Integer totalInCents;
-	@Column
+	@Column(nullable = false)
+	private LocalDate dueDate;
+	@Column(nullable = false)
+	private long totalInCents;
+	@Column(nullable = false, length = CUSTOMER_MAX_LENGTH)
 	private String customer;
-	@Column
-	private String status;
+	@Column(nullable = false, columnDefinition = "tinyint")
+	@Convert(converter = BankSlipStatusConverter.class)
+	private BankSlipStatusEnum status;
+	@Column(nullable = false)
+	private long fine;
+	@Column(nullable = false, columnDefinition = "tinyint")
+	private int fineTier;
+	// nulo ate a primeira gravacao: boletos novos com id ja atribuido continuam
+	// sendo inseridos (e nao mesclados)
+	@Version
+	@Column(nullable = false)
+	private Long version;
+
+	/**
+	 * Atribui um UUID ordenado pelo tempo aos boletos novos
+	 */
+	@PrePersist
+	void assignId() {
+		if (id == null)
+			id = TimeOrderedUUIDGenerator.next();
+	}
 
 	public UUID getId() {
 		return id;
@@ -39,19 +75,19 @@ public class BankSlip implements Serializable {
 		this.id = id;
 	}
 
-	public Date getDueDate() {
+	public LocalDate getDueDate() {
 		return dueDate;
 	}
 
-	public void setDueDate(Date dueDate) {
+	public void setDueDate(LocalDate dueDate) {
 		this.dueDate = dueDate;
 	}
 
-	public Integer getTotalInCents() {
+	public long getTotalInCents() {
 		return totalInCents;
 	}
 
-	public void setTotalInCents(Integer totalInCents) {
+	public void setTotalInCents(long totalInCents) {
 		this.totalInCents = totalInCents;
 	}
 
@@ -63,14 +99,67 @@ public class BankSlip implements Serializable {
 		this.customer = customer;
 	}
 
-	public String getStatus() {
+	public BankSlipStatusEnum getStatus() {
 		return status;
 	}
 
-	public void setStatus(String status) {
+	public void setStatus(BankSlipStatusEnum status) {
 		this.status = status;
 	}
 
+	/**
+	 * Multa em centavos gravada na ultima varredura dos boletos atrasados
+	 * 
+	 * @return
+	 */
+	public long getFine() {
+		return fine;
+	}
+
+	public void setFine(long fine) {
+		this.fine = fine;
+	}
+
+	/**
+	 * Faixa de multa (FineCalculator.TIER_*) gravada na ultima varredura dos
+	 * boletos atrasados
+	 * 
+	 * @return
+	 */
+	public int getFineTier() {
+		return fineTier;
+	}
+
+	public void setFineTier(int fineTier) {
+		this.fineTier = fineTier;
+	}
+
+	/**
+	 * Copia ainda nao gravada do boleto, com o mesmo id e sem versao
+	 * (ShardRebalancer)
+	 * 
+	 * @return
+	 */
+	BankSlip copy() {
+		BankSlip copy = new BankSlip();
+		copy.id = id;
+		copy.dueDate = dueDate;
+		copy.totalInCents = totalInCents;
+		copy.customer = customer;
+		copy.status = status;
+		copy.fine = fine;
+		copy.fineTier = fineTier;
+		return copy;
+	}
+
+	public long getVersion() {
+		return version == null ? 0 : version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -79,7 +168,7 @@ public class BankSlip implements Serializable {
 		result = prime * result + ((dueDate == null) ? 0 : dueDate.hashCode());
 		result = prime * result + ((id == null) ? 0 : id.hashCode());
 		result = prime * result + ((status == null) ? 0 : status.hashCode());
-		result = prime * result + ((totalInCents == null) ? 0 : totalInCents.hashCode());
+		result = prime * result + (int) (totalInCents ^ (totalInCents >>> 32));
 		return result;
 	}
 
@@ -107,15 +196,9 @@ public class BankSlip implements Serializable {
 				return false;
 		} else if (!id.equals(other.id))
 			return false;
-		if (status == null) {
-			if (other.status != null)
-				return false;
-		} else if (!status.equals(other.status))
+		if (status != other.status)
 			return false;
-		if (totalInCents == null) {
-			if (other.totalInCents != null)
-				return false;
-		} else if (!totalInCents.equals(other.totalInCents))
+		if (totalInCents != other.totalInCents)
 			return false;
 		return true;
 	}
@@ -123,7 +206,8 @@ public class BankSlip implements Serializable {
 	@Override
 	public String toString() {
 		return "BankSlipEntity [id=" + id + ", dueDate=" + dueDate + ", totalInCents=" + totalInCents + ", customer="
-				+ customer + ", status=" + status + "]";
+				+ customer + ", status=" + status + ", fine=" + fine + ", fineTier=" + fineTier + ", version=" + version
+				+ "]";
 	}
 
 }
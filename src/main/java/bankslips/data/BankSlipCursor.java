@@ -0,0 +1,84 @@
+package bankslips.data;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import bankslips.utils.DateCodec;
+
+/**
+ * Posicao de leitura na listagem paginada por chave (vencimento + id)
+ *
+ * O cursor e opaco para o cliente: e serializado em base64 (url safe) e deve
+ * ser devolvido sem alteracoes para obter a proxima pagina.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipCursor {
+
+	private static final char SEPARATOR = '|';
+
+	private final LocalDate dueDate;
+	private final UUID id;
+
+	public BankSlipCursor(LocalDate dueDate, UUID id) {
+		this.dueDate = dueDate;
+		this.id = id;
+	}
+
+	/**
+	 * Cria o cursor apontando para o ultimo boleto de uma pagina
+	 *
+	 * @param bankSlip
+	 * @return
+	 */
+	public static BankSlipCursor after(BankSlip bankSlip) {
+		return new BankSlipCursor(bankSlip.getDueDate(), bankSlip.getId());
+	}
+
+	/**
+	 * Recupera o cursor a partir do valor recebido na requisicao
+	 *
+	 * @param value
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             caso o valor nao seja um cursor valido
+	 */
+	public static BankSlipCursor decode(String value) {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+			int separator = decoded.indexOf(SEPARATOR);
+			if (separator < 0)
+				throw new IllegalArgumentException("Invalid cursor");
+
+			LocalDate dueDate = DateCodec.parse(decoded.substring(0, separator));
+			UUID id = UUID.fromString(decoded.substring(separator + 1));
+
+			return new BankSlipCursor(dueDate, id);
+		} catch (ParseException | RuntimeException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+
+	/**
+	 * Serializa o cursor para ser enviado ao cliente
+	 *
+	 * @return
+	 */
+	public String encode() {
+		String value = DateCodec.format(dueDate) + SEPARATOR + id.toString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LocalDate getDueDate() {
+		return dueDate;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+}
@@ -0,0 +1,72 @@
+package bankslips.data;
+
+import java.time.LocalDate;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Filtros e posicao da listagem paginada de boletos
+ *
+ * Todos os filtros sao opcionais; o limite e sempre definido pelo servidor.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipFilter {
+
+	private BankSlipStatusEnum status;
+	private String customer;
+	private LocalDate dueDateFrom;
+	private LocalDate dueDateTo;
+	private BankSlipCursor after;
+	private int limit;
+
+	public BankSlipStatusEnum getStatus() {
+		return status;
+	}
+
+	public void setStatus(BankSlipStatusEnum status) {
+		this.status = status;
+	}
+
+	public String getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	public LocalDate getDueDateFrom() {
+		return dueDateFrom;
+	}
+
+	public void setDueDateFrom(LocalDate dueDateFrom) {
+		this.dueDateFrom = dueDateFrom;
+	}
+
+	public LocalDate getDueDateTo() {
+		return dueDateTo;
+	}
+
+	public void setDueDateTo(LocalDate dueDateTo) {
+		this.dueDateTo = dueDateTo;
+	}
+
+	public BankSlipCursor getAfter() {
+		return after;
+	}
+
+	public void setAfter(BankSlipCursor after) {
+		this.after = after;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+}
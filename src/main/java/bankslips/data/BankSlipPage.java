@@ -0,0 +1,47 @@
+package bankslips.data;
+
+import java.util.List;
+
+import bankslips.data.dto.BankSlipDTO;
+
+/**
+ * Pagina da listagem de boletos
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipPage {
+
+	private final List<BankSlipDTO> content;
+	private final BankSlipCursor next;
+	private final String eTag;
+
+	public BankSlipPage(List<BankSlipDTO> content, BankSlipCursor next, String eTag) {
+		this.content = content;
+		this.next = next;
+		this.eTag = eTag;
+	}
+
+	public List<BankSlipDTO> getContent() {
+		return content;
+	}
+
+	/**
+	 * Cursor para a proxima pagina ou null caso esta seja a ultima
+	 *
+	 * @return
+	 */
+	public BankSlipCursor getNext() {
+		return next;
+	}
+
+	/**
+	 * ETag forte da pagina, calculado a partir dos ids e versoes dos boletos
+	 *
+	 * @return
+	 */
+	public String getETag() {
+		return eTag;
+	}
+
+}
@@ -1,20 +1,143 @@
 package bankslips.data;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
 
-public interface BankSlipRepository extends CrudRepository<BankSlip , UUID>{
+public interface BankSlipRepository extends CrudRepository<BankSlip , UUID>, BankSlipRepositoryCustom {
+	
+	/**
+	 * Cache dos boletos por id (configurado em spring.cache.caffeine.spec)
+	 */
+	public static final String CACHE_NAME = "bankslips";
+	
+	/**
+	 * Procura o boleto pelo id, passando antes pelo cache
+	 */
+	@Override
+	@Cacheable(cacheNames = CACHE_NAME, key = "#p0", unless = "#result == null")
+	public Optional<BankSlip> findById(UUID id);
+	
+	/**
+	 * Grava o boleto e atualiza o cache com a versao gravada
+	 */
+	@Override
+	@CachePut(cacheNames = CACHE_NAME, key = "#result.id")
+	public <S extends BankSlip> S save(S entity);
+	
+	@Override
+	@CacheEvict(cacheNames = CACHE_NAME, key = "#p0")
+	public void deleteById(UUID id);
+	
+	@Override
+	@CacheEvict(cacheNames = CACHE_NAME, key = "#p0.id")
+	public void delete(BankSlip entity);
+	
+	@Override
+	@CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+	public void deleteAll(Iterable<? extends BankSlip> entities);
+	
+	@Override
+	@CacheEvict(cacheNames = CACHE_NAME, allEntries = true)
+	public void deleteAll();
+	
+	/**
+	 * Altera o status do boleto em um unico comando, apenas se o status atual for
+	 * o esperado; remove o boleto do cache apos o commit
+	 * @param id
+	 * @param expectedStatus
+	 * @param status
+	 * @return quantidade de registros alterados (0 ou 1)
+	 */
+	@Modifying
+	@Transactional
+	@CacheEvict(cacheNames = CACHE_NAME, key = "#p0")
+	@Query("UPDATE BankSlip e SET e.status = :status, e.version = e.version + 1 "
+			+ "WHERE e.id = :id AND e.status = :expectedStatus")
+	public int updateStatus(@Param("id") UUID id, @Param("expectedStatus") BankSlipStatusEnum expectedStatus,
+			@Param("status") BankSlipStatusEnum status);
+	
+	/**
+	 * Grava a multa do boleto em um unico comando, apenas se o status e a faixa
+	 * de multa atuais forem os esperados; remove o boleto do cache apos o commit
+	 * @param id
+	 * @param status
+	 * @param expectedFineTier
+	 * @param fineTier
+	 * @param fine
+	 * @return quantidade de registros alterados (0 ou 1)
+	 */
+	@Modifying
+	@Transactional
+	@CacheEvict(cacheNames = CACHE_NAME, key = "#p0")
+	@Query("UPDATE BankSlip e SET e.fine = :fine, e.fineTier = :fineTier, e.version = e.version + 1 "
+			+ "WHERE e.id = :id AND e.status = :status AND e.fineTier = :expectedFineTier")
+	public int updateFine(@Param("id") UUID id, @Param("status") BankSlipStatusEnum status,
+			@Param("expectedFineTier") int expectedFineTier, @Param("fineTier") int fineTier,
+			@Param("fine") long fine);
 	
 	/**
-	 * Procura todos os boletos e converte em um objeto DTO
+	 * Procura apenas os campos do ETag do boleto, sem carregar a entidade
+	 * @param id
 	 * @return
 	 */
-	@Query("SELECT new bankslips.data.dto.BankSlipDTO(e) FROM BankSlip e ")
+	@Query("SELECT new bankslips.data.BankSlipVersion(e.version, e.status, e.dueDate) FROM BankSlip e "
+			+ "WHERE e.id = :id")
+	public Optional<BankSlipVersion> findVersionById(@Param("id") UUID id);
+	
+	/**
+	 * Procura todos os boletos, em ordem de id, e converte em um objeto DTO
+	 * @return
+	 */
+	@Query("SELECT new bankslips.data.dto.BankSlipDTO(e) FROM BankSlip e ORDER BY e.id")
 	public List<BankSlipDTO> findAllDtos();
 	
+	/**
+	 * Procura os boletos com id maior que o informado, em ordem de id
+	 * @param id
+	 * @param pageable
+	 * @return
+	 */
+	public List<BankSlip> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable);
+	
+	/**
+	 * Procura e bloqueia os boletos (SELECT ... FOR UPDATE) ate o fim da
+	 * transacao
+	 * @param ids
+	 * @return
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e FROM BankSlip e WHERE e.id IN :ids")
+	public List<BankSlip> lockAllById(@Param("ids") Collection<UUID> ids);
+	
+	/**
+	 * Percorre todos os boletos com um cursor no servidor, buscando os registros
+	 * em blocos; deve ser consumido dentro de uma transacao e fechado ao final
+	 * @return
+	 */
+	@QueryHints({ @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+			@QueryHint(name = "org.hibernate.readOnly", value = "true") })
+	@Query("SELECT e FROM BankSlip e")
+	public Stream<BankSlip> streamAll();
+	
 }
@@ -0,0 +1,32 @@
+package bankslips.data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BankSlipRepositoryCustom {
+
+	/**
+	 * Procura uma pagina de boletos ordenada por vencimento e id, a partir do
+	 * cursor e de acordo com os filtros informados
+	 *
+	 * @param filter
+	 * @param maxResults
+	 * @return
+	 */
+	public List<BankSlip> findPage(BankSlipFilter filter, int maxResults);
+
+	/**
+	 * Procura os boletos pendentes com a faixa de multa gravada e vencimento ate
+	 * a data informada, ordenados por vencimento e id, a partir do cursor
+	 * (indice idx_bank_slip_fine_tier_status_due_date)
+	 *
+	 * @param fineTier
+	 * @param lastDueDate
+	 * @param after
+	 * @param maxResults
+	 * @return
+	 */
+	public List<BankSlip> findPendingByFineTier(int fineTier, LocalDate lastDueDate, BankSlipCursor after,
+			int maxResults);
+
+}
@@ -0,0 +1,97 @@
+package bankslips.data;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import org.springframework.util.StringUtils;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Consultas do repositorio que dependem de filtros dinamicos
+ *
+ * As consultas sao montadas em JPQL, e nao com a Criteria API: o plano de uma
+ * consulta JPQL fica no cache do Hibernate (hibernate.query.plan_cache_max_size)
+ * e e reaproveitado a cada combinacao de filtros, enquanto uma CriteriaQuery e
+ * convertida novamente a cada requisicao.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipRepositoryImpl implements BankSlipRepositoryCustom {
+
+	private static final String SELECT = "SELECT e FROM BankSlip e WHERE 1 = 1";
+
+	private static final String ORDER_BY = " ORDER BY e.dueDate, e.id";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<BankSlip> findPage(BankSlipFilter filter, int maxResults) {
+		StringBuilder jpql = new StringBuilder(SELECT);
+		Map<String, Object> parameters = new HashMap<>();
+
+		if (filter.getStatus() != null)
+			where(jpql, parameters, " AND e.status = :status", "status", filter.getStatus());
+
+		if (StringUtils.hasLength(filter.getCustomer()))
+			where(jpql, parameters, " AND e.customer = :customer", "customer", filter.getCustomer());
+
+		if (filter.getDueDateFrom() != null)
+			where(jpql, parameters, " AND e.dueDate >= :dueDateFrom", "dueDateFrom", filter.getDueDateFrom());
+
+		if (filter.getDueDateTo() != null)
+			where(jpql, parameters, " AND e.dueDate <= :dueDateTo", "dueDateTo", filter.getDueDateTo());
+
+		addAfter(jpql, parameters, filter.getAfter());
+
+		return getResultList(jpql, parameters, maxResults);
+	}
+
+	@Override
+	public List<BankSlip> findPendingByFineTier(int fineTier, LocalDate lastDueDate, BankSlipCursor after,
+			int maxResults) {
+		StringBuilder jpql = new StringBuilder(SELECT);
+		Map<String, Object> parameters = new HashMap<>();
+
+		where(jpql, parameters, " AND e.status = :status", "status", BankSlipStatusEnum.PENDING);
+		where(jpql, parameters, " AND e.fineTier = :fineTier", "fineTier", fineTier);
+		where(jpql, parameters, " AND e.dueDate <= :lastDueDate", "lastDueDate", lastDueDate);
+		addAfter(jpql, parameters, after);
+
+		return getResultList(jpql, parameters, maxResults);
+	}
+
+	private void addAfter(StringBuilder jpql, Map<String, Object> parameters, BankSlipCursor after) {
+		if (after == null)
+			return;
+
+		// continua a partir da ultima chave lida (vencimento, id); a condicao
+		// redundante de vencimento limita o inicio da leitura no indice
+		jpql.append(" AND e.dueDate >= :afterDueDate" //
+				+ " AND (e.dueDate > :afterDueDate OR (e.dueDate = :afterDueDate AND e.id > :afterId))");
+		parameters.put("afterDueDate", after.getDueDate());
+		parameters.put("afterId", after.getId());
+	}
+
+	private void where(StringBuilder jpql, Map<String, Object> parameters, String condition, String name,
+			Object value) {
+		jpql.append(condition);
+		parameters.put(name, value);
+	}
+
+	private List<BankSlip> getResultList(StringBuilder jpql, Map<String, Object> parameters, int maxResults) {
+		TypedQuery<BankSlip> query = entityManager.createQuery(jpql.append(ORDER_BY).toString(), BankSlip.class);
+		parameters.forEach(query::setParameter);
+
+		return query.setMaxResults(maxResults).getResultList();
+	}
+
+}
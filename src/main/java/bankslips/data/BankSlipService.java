@@ -1,29 +1,419 @@
 package bankslips.data;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipExportFormatEnum;
+import bankslips.enumerators.BankSlipStatusEnum;
+import io.micrometer.core.annotation.Timed;
 
 @Service
 public class BankSlipService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(BankSlipService.class);
+
+    /**
+     * Cabecalho da exportacao em CSV
+     */
+    public static final String CSV_HEADER = "id,due_date,total_in_cents,customer,status\n";
+
+    /**
+     * Timer dos metodos do servico (tag method)
+     */
+    public static final String METRIC = "bankslips.service";
+
     @Autowired
     private BankSlipRepository bankSlipRepository;
-    
+
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BankSlipShards bankSlipShards;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${bankslips.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    /**
+     * As transacoes sao iniciadas depois da escolha do shard (BankSlipShards.on),
+     * e por isso sao programaticas
+     */
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Grava o boleto e o soma ao resumo do cliente
+     * 
+     * @param bankSlip
+     * @return Boleto gravado na base
+     */
+    @Timed(METRIC)
     public BankSlip save(BankSlip bankSlip) {
-        return bankSlipRepository.save(bankSlip);
+        bankSlipShards.assignId(bankSlip);
+
+        return bankSlipShards.on(bankSlipShards.shardOf(bankSlip), () -> transactionTemplate.execute(status -> {
+            BankSlip saved = bankSlipRepository.save(bankSlip);
+            customerSummaryService.add(Collections.singletonList(saved));
+
+            return saved;
+        }));
+    }
+
+    /**
+     * Insere novos boletos em uma unica transacao por shard; com mais de um
+     * shard as transacoes sao executadas em paralelo, e a falha de uma delas nao
+     * desfaz as demais: o lote nao e atomico, e a falha e informada para cada
+     * boleto do shard que falhou.
+     * 
+     * O contexto de persistencia e descarregado a cada bloco, para que os inserts
+     * sejam enviados em lotes JDBC (hibernate.jdbc.batch_size) e a memoria nao
+     * cresca com o tamanho do lote. Os resumos dos clientes novos sao criados
+     * na mesma transacao, em um unico comando.
+     * 
+     * @param bankSlips
+     *            boletos ainda nao persistidos; recebem o id
+     * @return Falha de cada boleto, na ordem do lote (null para os gravados)
+     * @throws RuntimeException
+     *             falha de todos os shards do lote: nenhum boleto foi gravado
+     */
+    @Timed(METRIC)
+    public List<RuntimeException> saveAll(List<BankSlip> bankSlips) {
+        for (BankSlip bankSlip : bankSlips)
+            bankSlipShards.assignId(bankSlip);
+
+        List<List<BankSlip>> partitions = bankSlipShards.partition(bankSlips, bankSlipShards::shardOf);
+        List<RuntimeException> shardFailures = bankSlipShards.scatter(shard -> {
+            try {
+                insertAll(partitions.get(shard));
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        });
+
+        RuntimeException failure = null;
+        boolean committed = false;
+        for (int shard = 0; shard < shardFailures.size(); shard++) {
+            if (shardFailures.get(shard) != null)
+                failure = shardFailures.get(shard);
+            else if (!partitions.get(shard).isEmpty())
+                committed = true;
+        }
+
+        if (failure == null)
+            return Collections.nCopies(bankSlips.size(), null);
+        if (!committed)
+            throw failure;
+
+        LOGGER.warn("Bank slip batch partially saved: {} shard(s) failed", shardFailures.stream()
+                .filter(shardFailure -> shardFailure != null).count(), failure);
+
+        List<RuntimeException> failures = new ArrayList<>(bankSlips.size());
+        for (BankSlip bankSlip : bankSlips)
+            failures.add(shardFailures.get(bankSlipShards.shardOf(bankSlip)));
+
+        return failures;
+    }
+
+    private List<BankSlip> insertAll(List<BankSlip> bankSlips) {
+        if (bankSlips.isEmpty())
+            return bankSlips;
+
+        return transactionTemplate.execute(status -> {
+            for (int i = 0; i < bankSlips.size(); i++) {
+                entityManager.persist(bankSlips.get(i));
+
+                if ((i + 1) % batchChunkSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+
+            customerSummaryService.add(bankSlips);
+
+            return bankSlips;
+        });
     }
     
+    /**
+     * Campos do ETag do boleto; usa o boleto do cache, se houver, e caso
+     * contrario le apenas esses campos da base
+     * 
+     * As leituras que podem preencher o cache nao usam replicas atrasadas em
+     * relacao as escritas desta instancia (ReadYourWrites.readingLastWrite).
+     * 
+     * @param id
+     * @return
+     */
+    @Timed(METRIC)
+    public Optional<BankSlipVersion> findVersion(UUID id) {
+        BankSlip cached = cacheManager.getCache(BankSlipRepository.CACHE_NAME).get(id, BankSlip.class);
+        if (cached != null)
+            return Optional.of(new BankSlipVersion(cached));
+
+        return bankSlipShards.findFirst(id, () -> readOnlyTransactionTemplate.execute(
+                status -> ReadYourWrites.readingLastWrite(() -> bankSlipRepository.findVersionById(id))));
+    }
+
+    /**
+     * Todos os boletos em ordem de id, intercalando os resultados dos shards
+     * 
+     * @return
+     */
+    @Timed(METRIC)
     public List<BankSlipDTO> findAllDtos() {
-    	return bankSlipRepository.findAllDtos();
+    	List<List<BankSlipDTO>> bankSlipDTOs = bankSlipShards.scatter(
+    			shard -> readOnlyTransactionTemplate.execute(status -> bankSlipRepository.findAllDtos()));
+
+    	return BankSlipShards.merge(bankSlipDTOs, Comparator.comparing(BankSlipDTO::getId, BankSlipShards.ID_ORDER),
+    			Integer.MAX_VALUE);
+    }
+
+    /**
+     * Ids, entre os informados, dos boletos ja gravados
+     * 
+     * @param ids
+     * @return
+     */
+    @Timed(METRIC)
+    public Set<UUID> findSavedIds(List<UUID> ids) {
+        List<List<UUID>> partitions = bankSlipShards.partition(ids, bankSlipShards::shardOf);
+
+        Set<UUID> saved = ConcurrentHashMap.newKeySet();
+        bankSlipShards.scatter(shard -> readOnlyTransactionTemplate.execute(status -> {
+            for (BankSlip bankSlip : bankSlipRepository.findAllById(partitions.get(shard)))
+                saved.add(bankSlip.getId());
+            return null;
+        }));
+
+        return saved;
     }
     
+    /**
+     * Recupera uma pagina de boletos; apenas os registros da pagina (mais um,
+     * para saber se existe continuacao) sao carregados de cada shard, e as
+     * paginas dos shards sao intercaladas pela ordem da listagem
+     * 
+     * @param filter
+     * @return
+     */
+    @Timed(METRIC)
+    public BankSlipPage findPage(BankSlipFilter filter) {
+        List<List<BankSlip>> pages = bankSlipShards.scatter(shard -> readOnlyTransactionTemplate
+                .execute(status -> bankSlipRepository.findPage(filter, filter.getLimit() + 1)));
+        List<BankSlip> bankSlips = BankSlipShards.merge(pages, BankSlipShards.DUE_DATE_ORDER, filter.getLimit() + 1);
+
+        boolean hasNext = bankSlips.size() > filter.getLimit();
+        if (hasNext)
+            bankSlips = bankSlips.subList(0, filter.getLimit());
+
+        // ETag da pagina: ids e versoes dos boletos e existencia de continuacao
+        long hash = hasNext ? 1 : 0;
+
+        List<BankSlipDTO> content = new ArrayList<>(bankSlips.size());
+        for (BankSlip bankSlip : bankSlips) {
+            content.add(new BankSlipDTO(bankSlip));
+
+            hash = mix(hash, bankSlip.getId().getMostSignificantBits());
+            hash = mix(hash, bankSlip.getId().getLeastSignificantBits());
+            hash = mix(hash, bankSlip.getVersion());
+        }
+
+        BankSlipCursor next = hasNext ? BankSlipCursor.after(bankSlips.get(bankSlips.size() - 1)) : null;
+
+        return new BankSlipPage(content, next, "\"" + Long.toHexString(hash) + "-" + content.size() + "\"");
+    }
+    
+    /**
+     * Exporta todos os boletos no formato informado, linha a linha.
+     * 
+     * Os registros sao lidos com cursor do servidor, um shard por vez, e
+     * descartados do contexto de persistencia logo apos a escrita, de modo que o
+     * consumo de memoria nao depende da quantidade de boletos; a escrita bloqueia
+     * quando o cliente nao consome a saida.
+     * 
+     * @param format
+     * @param out
+     * @throws IOException
+     */
+    @Timed(METRIC)
+    public void export(BankSlipExportFormatEnum format, OutputStream out) throws IOException {
+        if (format == BankSlipExportFormatEnum.CSV)
+            exportCsv(out);
+        else
+            exportNdjson(out);
+    }
+
+    private void exportNdjson(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        exportAll(bankSlipDTO -> {
+            generator.writeObject(bankSlipDTO);
+            generator.writeRaw('\n');
+        });
+
+        generator.close();
+    }
+
+    private void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+
+        exportAll(bankSlipDTO -> writeCsv(writer, bankSlipDTO));
+
+        writer.flush();
+    }
+
+    private void exportAll(ExportWriter exportWriter) throws IOException {
+        for (int shard = 0; shard < bankSlipShards.count(); shard++) {
+            try {
+                bankSlipShards.on(shard, () -> readOnlyTransactionTemplate.execute(status -> {
+                    try (Stream<BankSlip> stream = bankSlipRepository.streamAll()) {
+                        stream.forEach(bankSlip -> {
+                            try {
+                                exportWriter.write(new BankSlipDTO(bankSlip));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+
+                            entityManager.detach(bankSlip);
+                        });
+                    }
+                    return null;
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Escreve o boleto como uma linha CSV (colunas de CSV_HEADER)
+     * 
+     * @param writer
+     * @param bankSlipDTO
+     * @throws IOException
+     */
+    public void writeCsv(Writer writer, BankSlipDTO bankSlipDTO) throws IOException {
+        writer.write(bankSlipDTO.getId().toString());
+        writer.write(',');
+        writer.write(bankSlipDTO.getDueDate());
+        writer.write(',');
+        writer.write(String.valueOf(bankSlipDTO.getTotalInCents()));
+        writer.write(',');
+        writeCsvValue(writer, bankSlipDTO.getCustomer());
+        writer.write(',');
+        writer.write(bankSlipDTO.getStatus().name());
+        writer.write('\n');
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 31);
+    }
+
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null)
+            return;
+
+        // valores com separador, aspas ou quebra de linha sao escritos entre aspas
+        boolean quoted = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0;
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+    
+    /**
+     * Altera o status de um boleto pendente e move o boleto no resumo do cliente
+     * 
+     * Os demais shards so sao consultados se o boleto nao estiver no shard do
+     * id; um boleto encontrado que nao esta pendente encerra a busca.
+     * 
+     * @param id
+     * @param status
+     * @return false caso o boleto nao exista ou nao esteja pendente
+     */
+    @Timed(METRIC)
+    public boolean updateStatus(UUID id, BankSlipStatusEnum status) {
+        return bankSlipShards.findFirst(id, () -> transactionTemplate.execute(tx -> {
+            if (bankSlipRepository.updateStatus(id, BankSlipStatusEnum.PENDING, status) == 0)
+                return bankSlipRepository.findVersionById(id).map(version -> Boolean.FALSE);
+
+            // cliente e valor nao mudam depois da criacao; lidos sem passar pelo
+            // cache, que nao deve receber o boleto alterado antes do commit
+            customerSummaryService.move(entityManager.find(BankSlip.class, id), BankSlipStatusEnum.PENDING, status);
+
+            return Optional.of(Boolean.TRUE);
+        })).orElse(Boolean.FALSE);
+    }
+    
+    @Timed(METRIC)
     public BankSlipDTO findById(UUID id) {
-    	return new BankSlipDTO(bankSlipRepository.findById(id).get());
+    	return new BankSlipDTO(bankSlipShards
+    			.findFirst(id, () -> ReadYourWrites.readingLastWrite(() -> bankSlipRepository.findById(id))).get());
+    }
+
+    /**
+     * Escrita de um boleto na exportacao
+     */
+    @FunctionalInterface
+    private interface ExportWriter {
+
+        void write(BankSlipDTO bankSlipDTO) throws IOException;
+
     }
     
 }
@@ -0,0 +1,290 @@
+package bankslips.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distribuicao dos boletos entre os shards (bankslips.shards.urls)
+ *
+ * O shard de um boleto e escolhido no anel de hash consistente pelo hash do id
+ * ou, com bankslips.shards.key=customer, pelo hash do cliente, que mantem os
+ * boletos de um cliente no mesmo shard. Nesse caso os ids gerados trazem o hash
+ * do cliente nos 32 bits finais, e o shard de um boleto continua sendo
+ * encontrado apenas pelo id.
+ *
+ * As consultas que envolvem todos os shards (scatter) sao executadas em
+ * paralelo, uma delas na propria thread. Sem shards configurados ha um unico
+ * shard, e as operacoes sao executadas diretamente na thread atual.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+public class BankSlipShards {
+
+	/**
+	 * Ordem dos ids na base (binary(16): bytes sem sinal)
+	 */
+	public static final Comparator<UUID> ID_ORDER = (a, b) -> {
+		int result = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+		return result != 0 ? result
+				: Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+	};
+
+	/**
+	 * Ordem da listagem paginada (vencimento e id)
+	 */
+	public static final Comparator<BankSlip> DUE_DATE_ORDER = Comparator.comparing(BankSlip::getDueDate)
+			.thenComparing(BankSlip::getId, ID_ORDER);
+
+	private final int count;
+
+	private final boolean customerKey;
+
+	private final ConsistentHashRing ring;
+
+	private final ExecutorService executor;
+
+	@Autowired
+	public BankSlipShards(@Value("${bankslips.shards.urls:}") List<String> urls,
+			@Value("${bankslips.shards.key:id}") String key) {
+		if (!"id".equals(key) && !"customer".equals(key))
+			throw new IllegalArgumentException("Invalid shard key: " + key);
+
+		this.count = Math.max(1, urls.size());
+		this.customerKey = "customer".equals(key);
+		this.ring = new ConsistentHashRing(count);
+
+		if (count > 1) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bankslips-shard-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newCachedThreadPool(threadFactory);
+		} else {
+			this.executor = null;
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		if (executor != null)
+			executor.shutdown();
+	}
+
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Novo id de boleto do cliente
+	 *
+	 * @param customer
+	 * @return
+	 */
+	public UUID newId(String customer) {
+		UUID id = TimeOrderedUUIDGenerator.next();
+		if (!customerKey)
+			return id;
+
+		return new UUID(id.getMostSignificantBits(),
+				(id.getLeastSignificantBits() & 0xFFFFFFFF00000000L) | (hash(customer) & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Atribui o id aos boletos novos (ver newId)
+	 *
+	 * @param bankSlip
+	 */
+	public void assignId(BankSlip bankSlip) {
+		if (bankSlip.getId() == null)
+			bankSlip.setId(newId(bankSlip.getCustomer()));
+	}
+
+	/**
+	 * Shard em que o boleto deve ser gravado
+	 *
+	 * @param bankSlip
+	 *            boleto com o id atribuido
+	 * @return
+	 */
+	public int shardOf(BankSlip bankSlip) {
+		return customerKey ? ring.shardOf(hash(bankSlip.getCustomer())) : shardOf(bankSlip.getId());
+	}
+
+	/**
+	 * Shard do boleto a partir do id
+	 *
+	 * Com a chave customer, boletos gravados antes do uso dessa chave podem estar
+	 * em outro shard (ver findFirst).
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int shardOf(UUID id) {
+		if (customerKey)
+			return ring.shardOf((int) id.getLeastSignificantBits());
+
+		return ring.shardOf(ConsistentHashRing.hash(id.getMostSignificantBits() ^ id.getLeastSignificantBits()));
+	}
+
+	/**
+	 * Executa a operacao no shard informado; as transacoes devem ser iniciadas
+	 * dentro da operacao
+	 *
+	 * @param shard
+	 * @param operation
+	 * @return
+	 */
+	public <T> T on(int shard, Supplier<T> operation) {
+		Integer previous = ShardRoutingDataSource.current();
+
+		ShardRoutingDataSource.use(shard);
+		try {
+			return operation.get();
+		} finally {
+			ShardRoutingDataSource.use(previous);
+		}
+	}
+
+	/**
+	 * Executa a leitura no shard do id e, se nada for encontrado, nos demais:
+	 * o boleto pode estar sendo movido para outro shard (ShardRebalancer) ou ter
+	 * sido gravado com outra chave de distribuicao
+	 *
+	 * Um boleto movido para o shard do id durante a busca ja nao esta na origem
+	 * quando ela e consultada; a copia e confirmada antes da remocao da origem,
+	 * e por isso o shard do id e consultado mais uma vez.
+	 *
+	 * @param id
+	 * @param read
+	 *            vazio apenas se o boleto nao estiver no shard
+	 * @return
+	 */
+	public <T> Optional<T> findFirst(UUID id, Supplier<Optional<T>> read) {
+		int owner = shardOf(id);
+
+		Optional<T> result = on(owner, read);
+		if (count == 1 || result.isPresent())
+			return result;
+
+		for (int shard = 0; shard < count && result.isEmpty(); shard++)
+			if (shard != owner)
+				result = on(shard, read);
+
+		return result.isPresent() ? result : on(owner, read);
+	}
+
+	/**
+	 * Executa a operacao em todos os shards, em paralelo
+	 *
+	 * @param operation
+	 *            recebe o numero do shard
+	 * @return resultados na ordem dos shards
+	 */
+	public <T> List<T> scatter(IntFunction<T> operation) {
+		if (count == 1)
+			return Collections.singletonList(on(0, () -> operation.apply(0)));
+
+		List<Future<T>> futures = new ArrayList<>(count - 1);
+		for (int shard = 1; shard < count; shard++) {
+			int target = shard;
+			futures.add(executor.submit(() -> on(target, () -> operation.apply(target))));
+		}
+
+		List<T> results = new ArrayList<>(count);
+		results.add(on(0, () -> operation.apply(0)));
+
+		try {
+			for (Future<T> future : futures)
+				results.add(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+
+		return results;
+	}
+
+	/**
+	 * Separa os itens pelo shard
+	 *
+	 * @param items
+	 * @param shardOf
+	 * @return itens de cada shard, na ordem original
+	 */
+	public <T> List<List<T>> partition(Iterable<T> items, ToIntFunction<? super T> shardOf) {
+		List<List<T>> partitions = new ArrayList<>(count);
+		for (int shard = 0; shard < count; shard++)
+			partitions.add(new ArrayList<>());
+
+		for (T item : items)
+			partitions.get(count == 1 ? 0 : shardOf.applyAsInt(item)).add(item);
+
+		return partitions;
+	}
+
+	/**
+	 * Intercala listas ordenadas (k-way merge), descartando repeticoes: durante a
+	 * redistribuicao um boleto pode estar em dois shards
+	 *
+	 * @param sorted
+	 *            resultados de cada shard, na ordem informada
+	 * @param order
+	 * @param limit
+	 *            quantidade maxima de itens
+	 * @return
+	 */
+	public static <T> List<T> merge(List<? extends List<T>> sorted, Comparator<? super T> order, int limit) {
+		if (sorted.size() == 1)
+			return sorted.get(0).size() <= limit ? sorted.get(0) : sorted.get(0).subList(0, limit);
+
+		// posicao de cada lista: [lista, indice]
+		PriorityQueue<int[]> heads = new PriorityQueue<>(sorted.size(),
+				(a, b) -> order.compare(sorted.get(a[0]).get(a[1]), sorted.get(b[0]).get(b[1])));
+		for (int i = 0; i < sorted.size(); i++)
+			if (!sorted.get(i).isEmpty())
+				heads.add(new int[] { i, 0 });
+
+		List<T> merged = new ArrayList<>();
+		while (!heads.isEmpty() && merged.size() < limit) {
+			int[] head = heads.poll();
+			T item = sorted.get(head[0]).get(head[1]);
+			if (merged.isEmpty() || order.compare(merged.get(merged.size() - 1), item) != 0)
+				merged.add(item);
+
+			if (++head[1] < sorted.get(head[0]).size())
+				heads.add(head);
+		}
+
+		return merged;
+	}
+
+	private static int hash(String customer) {
+		return ConsistentHashRing.hash(customer.hashCode());
+	}
+
+}
@@ -0,0 +1,27 @@
+package bankslips.data;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Grava o status do boleto como um codigo numerico (coluna tinyint)
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Converter
+public class BankSlipStatusConverter implements AttributeConverter<BankSlipStatusEnum, Integer> {
+
+	@Override
+	public Integer convertToDatabaseColumn(BankSlipStatusEnum status) {
+		return status == null ? null : status.getCode();
+	}
+
+	@Override
+	public BankSlipStatusEnum convertToEntityAttribute(Integer code) {
+		return code == null ? null : BankSlipStatusEnum.fromCode(code);
+	}
+
+}
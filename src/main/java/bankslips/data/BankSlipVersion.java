@@ -0,0 +1,46 @@
+package bankslips.data;
+
+import java.time.LocalDate;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Campos do boleto que determinam o ETag dos detalhes do boleto
+ *
+ * A versao muda a cada alteracao gravada (status ou multa da varredura); a
+ * faixa de multa atual e calculada a cada requisicao, ja que a multa exibida
+ * nos detalhes muda com a data mesmo sem alteracao na base.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipVersion {
+
+	private final long version;
+	private final BankSlipStatusEnum status;
+	private final LocalDate dueDate;
+
+	public BankSlipVersion(Long version, BankSlipStatusEnum status, LocalDate dueDate) {
+		this.version = version == null ? 0 : version;
+		this.status = status;
+		this.dueDate = dueDate;
+	}
+
+	public BankSlipVersion(BankSlip bankSlip) {
+		this(bankSlip.getVersion(), bankSlip.getStatus(), bankSlip.getDueDate());
+	}
+
+	/**
+	 * ETag forte dos detalhes do boleto: versao e faixa de multa atual
+	 *
+	 * @param fineCalculator
+	 * @return
+	 */
+	public String eTag(FineCalculator fineCalculator) {
+		int fineTier = status == BankSlipStatusEnum.PENDING ? fineCalculator.tier(dueDate.toEpochDay())
+				: FineCalculator.TIER_NONE;
+
+		return "\"" + version + "-" + fineTier + "\"";
+	}
+
+}
@@ -0,0 +1,389 @@
+package bankslips.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.exceptions.BankSlipQueueFullException;
+
+/**
+ * Criacao assincrona de boletos (write-behind)
+ * 
+ * Quando habilitada (bankslips.write-behind.enabled), a criacao de boletos
+ * apenas grava o boleto no journal local e o coloca em uma fila limitada;
+ * threads de gravacao retiram os boletos da fila em lotes e gravam cada lote
+ * em uma unica transacao. Com a fila cheia novos boletos sao recusados. Com
+ * spring.threads.virtual.enabled as threads de gravacao sao virtual threads.
+ * 
+ * Os boletos aceitos e ainda nao gravados sao recuperados do journal ao
+ * iniciar a aplicacao; boletos que ja estao na base nao sao gravados de novo.
+ * 
+ * Falhas transitorias (base indisponivel, timeout) sao repetidas. Um boleto
+ * recusado pela base (violacao de restricao ou valor invalido para a coluna)
+ * falharia em todas as tentativas: o lote e dividido ao meio ate isolar o
+ * boleto, que e movido para o arquivo de rejeitados do journal
+ * (WriteBehindJournal.REJECTED), e os demais sao gravados normalmente.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+@Lazy(false)
+public class BankSlipWriteBehindQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BankSlipWriteBehindQueue.class);
+
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	private static final SQLStateSQLExceptionTranslator SQL_STATE_TRANSLATOR = new SQLStateSQLExceptionTranslator();
+
+	@Autowired
+	private BankSlipService bankSlipService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${bankslips.write-behind.enabled:false}")
+	private boolean enabled;
+
+	@Value("${bankslips.write-behind.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${bankslips.write-behind.writer-threads:2}")
+	private int writerThreads;
+
+	@Value("${bankslips.write-behind.batch-size:500}")
+	private int batchSize;
+
+	@Value("${bankslips.write-behind.journal-dir:journal}")
+	private String journalDir;
+
+	@Value("${bankslips.write-behind.journal-segment-size:67108864}")
+	private long journalSegmentSize;
+
+	@Value("${bankslips.write-behind.journal-sync:true}")
+	private boolean journalSync;
+
+	@Value("${spring.threads.virtual.enabled:false}")
+	private boolean virtualThreads;
+
+	private BlockingQueue<Entry> queue;
+	private WriteBehindJournal journal;
+	private ExecutorService writers;
+
+	private final ReentrantLock submitLock = new ReentrantLock();
+
+	private volatile boolean running;
+
+	@PostConstruct
+	public void open() throws IOException {
+		if (!enabled)
+			return;
+
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		journal = new WriteBehindJournal(Paths.get(journalDir), objectMapper, journalSegmentSize, journalSync);
+	}
+
+	/**
+	 * Grava os boletos recuperados do journal e inicia as threads de gravacao
+	 * 
+	 * @throws IOException
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() throws IOException {
+		if (!enabled)
+			return;
+
+		recover();
+
+		running = true;
+		writers = virtualThreads
+				? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bankslips-writer-", 0).factory())
+				: Executors.newFixedThreadPool(writerThreads);
+		for (int i = 0; i < writerThreads; i++)
+			writers.execute(this::write);
+	}
+
+	/**
+	 * Aguarda a gravacao dos boletos da fila; os boletos que nao forem gravados
+	 * continuam no journal
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@PreDestroy
+	public void stop() throws IOException, InterruptedException {
+		if (!enabled)
+			return;
+
+		running = false;
+		if (writers != null) {
+			writers.shutdown();
+			writers.awaitTermination(30, TimeUnit.SECONDS);
+		}
+
+		journal.close();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Aceita o boleto para gravacao assincrona
+	 * 
+	 * @param bankSlip
+	 *            boleto validado e com o id atribuido
+	 * @throws BankSlipQueueFullException
+	 *             caso a fila esteja cheia
+	 */
+	public void submit(BankSlip bankSlip) {
+		BankSlipDTO bankSlipDTO = new BankSlipDTO(bankSlip);
+
+		// a fila so e esvaziada pelas threads de gravacao: com o lock, o espaco
+		// verificado continua disponivel ate a insercao
+		submitLock.lock();
+		try {
+			if (queue.remainingCapacity() == 0)
+				throw new BankSlipQueueFullException();
+
+			queue.add(new Entry(bankSlipDTO, journal.append(bankSlipDTO)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			submitLock.unlock();
+		}
+	}
+
+	/**
+	 * Quantidade de boletos aguardando gravacao
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return enabled ? queue.size() : 0;
+	}
+
+	/**
+	 * Grava os boletos do journal; os recusados pela base sao rejeitados, e uma
+	 * falha transitoria interrompe o inicio da aplicacao, mantendo o journal
+	 * 
+	 * @throws IOException
+	 */
+	private void recover() throws IOException {
+		List<BankSlipDTO> recovered = journal.recover();
+
+		for (int from = 0; from < recovered.size(); from += batchSize) {
+			List<BankSlipDTO> chunk = recovered.subList(from, Math.min(from + batchSize, recovered.size()));
+
+			saveOrReject(chunk, true);
+		}
+
+		journal.deleteRecovered();
+	}
+
+	private void write() {
+		List<Entry> batch = new ArrayList<>(batchSize);
+
+		try {
+			while (running || !queue.isEmpty()) {
+				Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null)
+					continue;
+
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+
+				save(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Grava o lote em uma transacao, repetindo enquanto houver falha
+	 * transitoria; o lote continua no journal ate ser gravado ou rejeitado
+	 * 
+	 * @param batch
+	 * @throws InterruptedException
+	 */
+	private void save(List<Entry> batch) throws InterruptedException {
+		List<BankSlipDTO> bankSlipDTOs = new ArrayList<>(batch.size());
+		for (Entry entry : batch)
+			bankSlipDTOs.add(entry.bankSlipDTO);
+
+		for (boolean retry = false;; retry = true) {
+			try {
+				// entidades novas a cada tentativa: a transacao que falhou pode ter
+				// alterado as anteriores; com shards, as transacoes dos demais shards
+				// podem ter gravado parte do lote
+				saveOrReject(bankSlipDTOs, retry);
+				break;
+			} catch (RuntimeException e) {
+				if (!running)
+					return;
+
+				Thread.sleep(RETRY_DELAY_MILLIS);
+			}
+		}
+
+		try {
+			for (Entry entry : batch)
+				entry.segment.committed();
+		} catch (IOException e) {
+			// segmento removido no proximo inicio, apos a recuperacao
+		}
+	}
+
+	/**
+	 * Grava os boletos; com uma falha permanente o lote e dividido ao meio e
+	 * cada metade e gravada separadamente, ate isolar os boletos recusados
+	 * 
+	 * @param bankSlipDTOs
+	 * @param retry
+	 *            parte dos boletos pode ja estar na base
+	 * @throws RuntimeException
+	 *             falha transitoria
+	 */
+	private void saveOrReject(List<BankSlipDTO> bankSlipDTOs, boolean retry) {
+		try {
+			for (RuntimeException failure : bankSlipService
+					.saveAll(retry ? unsaved(bankSlipDTOs) : toEntities(bankSlipDTOs)))
+				if (failure != null)
+					throw failure;
+		} catch (RuntimeException e) {
+			if (!isPermanent(e))
+				throw e;
+
+			if (bankSlipDTOs.size() == 1) {
+				reject(bankSlipDTOs.get(0), e);
+				return;
+			}
+
+			// com shards, parte do lote pode ter sido gravada
+			int middle = bankSlipDTOs.size() / 2;
+			saveOrReject(bankSlipDTOs.subList(0, middle), true);
+			saveOrReject(bankSlipDTOs.subList(middle, bankSlipDTOs.size()), true);
+		}
+	}
+
+	private void reject(BankSlipDTO bankSlipDTO, RuntimeException e) {
+		LOGGER.error("Bank slip {} rejected by the database, moved to {}: {}", bankSlipDTO.getId(),
+				WriteBehindJournal.REJECTED, e.getMessage());
+
+		try {
+			journal.reject(bankSlipDTO);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}
+	}
+
+	/**
+	 * Falha que se repetiria em todas as tentativas: violacao de restricao ou
+	 * valor invalido para a coluna (SQLState 23 e 22)
+	 * 
+	 * As gravacoes em lote usam o EntityManager diretamente, e a excecao pode
+	 * chegar sem traducao: nesse caso e traduzida a SQLException de origem.
+	 * 
+	 * @param e
+	 * @return
+	 */
+	private static boolean isPermanent(RuntimeException e) {
+		if (e instanceof DataIntegrityViolationException)
+			return true;
+
+		for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLException)
+				return SQL_STATE_TRANSLATOR.translate("saveAll", null,
+						(SQLException) cause) instanceof DataIntegrityViolationException;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Entidades dos boletos que ainda nao estao na base
+	 * 
+	 * @param bankSlipDTOs
+	 * @return
+	 */
+	private List<BankSlip> unsaved(List<BankSlipDTO> bankSlipDTOs) {
+		List<UUID> ids = new ArrayList<>(bankSlipDTOs.size());
+		for (BankSlipDTO bankSlipDTO : bankSlipDTOs)
+			ids.add(bankSlipDTO.getId());
+
+		Set<UUID> saved = bankSlipService.findSavedIds(ids);
+
+		List<BankSlip> bankSlips = new ArrayList<>(bankSlipDTOs.size());
+		for (BankSlipDTO bankSlipDTO : bankSlipDTOs) {
+			if (!saved.contains(bankSlipDTO.getId()))
+				bankSlips.add(toEntity(bankSlipDTO));
+		}
+
+		return bankSlips;
+	}
+
+	private List<BankSlip> toEntities(List<BankSlipDTO> bankSlipDTOs) {
+		List<BankSlip> bankSlips = new ArrayList<>(bankSlipDTOs.size());
+		for (BankSlipDTO bankSlipDTO : bankSlipDTOs)
+			bankSlips.add(toEntity(bankSlipDTO));
+
+		return bankSlips;
+	}
+
+	private BankSlip toEntity(BankSlipDTO bankSlipDTO) {
+		try {
+			return bankSlipDTO.getEntityToSave();
+		} catch (ParseException e) {
+			// a data ja foi validada antes do boleto ser aceito
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Boleto na fila e o segmento do journal em que foi gravado
+	 */
+	private static final class Entry {
+
+		private final BankSlipDTO bankSlipDTO;
+		private final WriteBehindJournal.Segment segment;
+
+		private Entry(BankSlipDTO bankSlipDTO, WriteBehindJournal.Segment segment) {
+			this.bankSlipDTO = bankSlipDTO;
+			this.segment = segment;
+		}
+
+	}
+
+}
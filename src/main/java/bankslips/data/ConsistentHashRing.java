@@ -0,0 +1,71 @@
+package bankslips.data;
+
+import java.util.Arrays;
+
+/**
+ * Anel de hash consistente dos shards
+ *
+ * Cada shard ocupa VIRTUAL_NODES posicoes do anel (hash de 32 bits), que
+ * dependem apenas do numero do shard; uma chave pertence ao shard da primeira
+ * posicao igual ou maior que o seu hash. Ao acrescentar um shard as posicoes
+ * dos demais nao mudam: apenas as chaves que caem nas posicoes do novo shard
+ * (cerca de 1/N) trocam de shard, todas para o novo.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class ConsistentHashRing {
+
+	public static final int VIRTUAL_NODES = 128;
+
+	private final int[] positions;
+	private final int[] shards;
+
+	public ConsistentHashRing(int shardCount) {
+		long[] nodes = new long[shardCount * VIRTUAL_NODES];
+		for (int shard = 0; shard < shardCount; shard++)
+			for (int node = 0; node < VIRTUAL_NODES; node++)
+				// posicao nos 32 bits altos, shard nos baixos: ordena pela posicao
+				nodes[shard * VIRTUAL_NODES + node] = ((long) hash(((long) shard << 32) | node) << 32) | shard;
+		Arrays.sort(nodes);
+
+		positions = new int[nodes.length];
+		shards = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			positions[i] = (int) (nodes[i] >> 32);
+			shards[i] = (int) nodes[i];
+		}
+	}
+
+	/**
+	 * Shard dono da chave
+	 *
+	 * @param hash
+	 *            hash de 32 bits da chave
+	 * @return
+	 */
+	public int shardOf(int hash) {
+		int index = Arrays.binarySearch(positions, hash);
+		if (index < 0)
+			index = -index - 1;
+
+		return shards[index == positions.length ? 0 : index];
+	}
+
+	/**
+	 * Hash de 32 bits bem distribuido (finalizador do MurmurHash3), estavel
+	 * entre execucoes
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static int hash(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return (int) value;
+	}
+
+}
@@ -0,0 +1,121 @@
+package bankslips.data;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Quantidade e valor total dos boletos de um cliente, por status
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Entity
+public class CustomerSummary implements Serializable {
+
+	private static final long serialVersionUID = -2386307145327913641L;
+
+	@Id
+	private String customer;
+
+	@Column(nullable = false)
+	private long pendingCount;
+	@Column(nullable = false)
+	private long pendingInCents;
+	@Column(nullable = false)
+	private long paidCount;
+	@Column(nullable = false)
+	private long paidInCents;
+	@Column(nullable = false)
+	private long canceledCount;
+	@Column(nullable = false)
+	private long canceledInCents;
+
+	public CustomerSummary() {
+
+	}
+
+	public CustomerSummary(String customer) {
+		this.customer = customer;
+	}
+
+	public String getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	public long getPendingCount() {
+		return pendingCount;
+	}
+
+	public void setPendingCount(long pendingCount) {
+		this.pendingCount = pendingCount;
+	}
+
+	public long getPendingInCents() {
+		return pendingInCents;
+	}
+
+	public void setPendingInCents(long pendingInCents) {
+		this.pendingInCents = pendingInCents;
+	}
+
+	public long getPaidCount() {
+		return paidCount;
+	}
+
+	public void setPaidCount(long paidCount) {
+		this.paidCount = paidCount;
+	}
+
+	public long getPaidInCents() {
+		return paidInCents;
+	}
+
+	public void setPaidInCents(long paidInCents) {
+		this.paidInCents = paidInCents;
+	}
+
+	public long getCanceledCount() {
+		return canceledCount;
+	}
+
+	public void setCanceledCount(long canceledCount) {
+		this.canceledCount = canceledCount;
+	}
+
+	public long getCanceledInCents() {
+		return canceledInCents;
+	}
+
+	public void setCanceledInCents(long canceledInCents) {
+		this.canceledInCents = canceledInCents;
+	}
+
+	/**
+	 * Soma os totais de outro resumo do cliente (resumos de shards diferentes)
+	 * 
+	 * @param other
+	 */
+	public void add(CustomerSummary other) {
+		pendingCount += other.pendingCount;
+		pendingInCents += other.pendingInCents;
+		paidCount += other.paidCount;
+		paidInCents += other.paidInCents;
+		canceledCount += other.canceledCount;
+		canceledInCents += other.canceledInCents;
+	}
+
+	@Override
+	public String toString() {
+		return "CustomerSummary [customer=" + customer + ", pendingCount=" + pendingCount + ", pendingInCents="
+				+ pendingInCents + ", paidCount=" + paidCount + ", paidInCents=" + paidInCents + ", canceledCount="
+				+ canceledCount + ", canceledInCents=" + canceledInCents + "]";
+	}
+
+}
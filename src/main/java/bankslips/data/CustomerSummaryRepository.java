@@ -0,0 +1,51 @@
+package bankslips.data;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface CustomerSummaryRepository extends CrudRepository<CustomerSummary, String> {
+
+	/**
+	 * Cria, em um unico comando, os resumos zerados dos clientes que ainda nao
+	 * tem resumo; quando outra transacao cria o mesmo resumo ao mesmo tempo, o
+	 * MERGE espera por ela e encontra o resumo ja criado
+	 * @param customers
+	 *            clientes em ordem, para que transacoes concorrentes bloqueiem os
+	 *            resumos na mesma sequencia
+	 * @return quantidade de registros inseridos ou ja existentes
+	 */
+	@Modifying
+	@Transactional
+	@Query(nativeQuery = true, value = "MERGE INTO customer_summary (customer) KEY (customer) "
+			+ "SELECT * FROM UNNEST(:customers)")
+	public int createMissing(@Param("customers") String[] customers);
+
+	/**
+	 * Soma as quantidades e valores informados ao resumo do cliente, em um unico
+	 * comando
+	 * @param customer
+	 * @param pendingCount
+	 * @param pendingInCents
+	 * @param paidCount
+	 * @param paidInCents
+	 * @param canceledCount
+	 * @param canceledInCents
+	 * @return quantidade de registros alterados (0 ou 1)
+	 */
+	@Modifying
+	@Transactional
+	@Query("UPDATE CustomerSummary s SET " //
+			+ "s.pendingCount = s.pendingCount + :pendingCount, s.pendingInCents = s.pendingInCents + :pendingInCents, "
+			+ "s.paidCount = s.paidCount + :paidCount, s.paidInCents = s.paidInCents + :paidInCents, "
+			+ "s.canceledCount = s.canceledCount + :canceledCount, "
+			+ "s.canceledInCents = s.canceledInCents + :canceledInCents " //
+			+ "WHERE s.customer = :customer")
+	public int add(@Param("customer") String customer, @Param("pendingCount") long pendingCount,
+			@Param("pendingInCents") long pendingInCents, @Param("paidCount") long paidCount,
+			@Param("paidInCents") long paidInCents, @Param("canceledCount") long canceledCount,
+			@Param("canceledInCents") long canceledInCents);
+
+}
@@ -0,0 +1,128 @@
+package bankslips.data;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import bankslips.data.dto.CustomerSummaryDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Resumo dos boletos por cliente
+ * 
+ * Os totais sao mantidos na tabela customer_summary e alterados com um UPDATE
+ * incremental na mesma transacao que cria o boleto ou altera o seu status, de
+ * modo que a consulta le um unico registro, independente da quantidade de
+ * boletos do cliente. Com shards, cada shard tem o resumo dos boletos
+ * gravados nele, e a consulta soma os resumos dos shards.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Service
+public class CustomerSummaryService {
+
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	/**
+	 * Resumo dos boletos do cliente (zerado para clientes sem boletos)
+	 * 
+	 * @param customer
+	 * @return
+	 */
+	public CustomerSummaryDTO findByCustomer(String customer) {
+		CustomerSummary customerSummary = new CustomerSummary(customer);
+		for (Optional<CustomerSummary> shardSummary : bankSlipShards
+				.scatter(shard -> customerSummaryRepository.findById(customer)))
+			shardSummary.ifPresent(customerSummary::add);
+
+		return new CustomerSummaryDTO(customerSummary);
+	}
+
+	/**
+	 * Soma os boletos criados aos resumos dos clientes
+	 * 
+	 * Os resumos dos clientes novos sao criados antes, na mesma transacao e em
+	 * um unico comando para todo o lote.
+	 * 
+	 * @param bankSlips
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void add(Iterable<? extends BankSlip> bankSlips) {
+		Set<String> customers = new TreeSet<>();
+		for (BankSlip bankSlip : bankSlips)
+			customers.add(bankSlip.getCustomer());
+		customerSummaryRepository.createMissing(customers.toArray(new String[0]));
+
+		add(bankSlips, 1);
+	}
+
+	/**
+	 * Subtrai dos resumos dos clientes os boletos removidos do shard
+	 * (ShardRebalancer)
+	 * 
+	 * @param bankSlips
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void remove(Iterable<? extends BankSlip> bankSlips) {
+		add(bankSlips, -1);
+	}
+
+	private void add(Iterable<? extends BankSlip> bankSlips, int sign) {
+		// clientes em ordem, para que transacoes concorrentes bloqueiem os resumos
+		// na mesma sequencia
+		Map<String, long[]> deltas = new TreeMap<>();
+
+		for (BankSlip bankSlip : bankSlips) {
+			long[] delta = deltas.computeIfAbsent(bankSlip.getCustomer(), customer -> new long[6]);
+			add(delta, bankSlip.getStatus(), sign, sign * bankSlip.getTotalInCents());
+		}
+
+		for (Map.Entry<String, long[]> delta : deltas.entrySet())
+			apply(delta.getKey(), delta.getValue());
+	}
+
+	/**
+	 * Move o boleto de status no resumo do cliente
+	 * 
+	 * @param bankSlip
+	 * @param from
+	 * @param to
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void move(BankSlip bankSlip, BankSlipStatusEnum from, BankSlipStatusEnum to) {
+		long[] delta = new long[6];
+		add(delta, from, -1, -bankSlip.getTotalInCents());
+		add(delta, to, 1, bankSlip.getTotalInCents());
+
+		apply(bankSlip.getCustomer(), delta);
+	}
+
+	private void add(long[] delta, BankSlipStatusEnum status, long count, long totalInCents) {
+		delta[status.getCode() * 2] += count;
+		delta[status.getCode() * 2 + 1] += totalInCents;
+	}
+
+	private void apply(String customer, long[] delta) {
+		if (customerSummaryRepository.add(customer, delta[0], delta[1], delta[2], delta[3], delta[4],
+				delta[5]) > 0)
+			return;
+
+		// resumo ausente (boletos gravados sem passar pelo BankSlipService): criado
+		// na propria transacao
+		customerSummaryRepository.createMissing(new String[] { customer });
+		customerSummaryRepository.add(customer, delta[0], delta[1], delta[2], delta[3], delta[4], delta[5]);
+	}
+
+}
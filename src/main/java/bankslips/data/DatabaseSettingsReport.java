@@ -0,0 +1,114 @@
+package bankslips.data;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Configuracao efetiva da base, do pool de conexoes e do Hibernate, registrada
+ * no log ao iniciar a aplicacao
+ *
+ * Os valores sao lidos dos proprios componentes (pool, sessao do H2 e
+ * EntityManagerFactory), e nao dos arquivos de configuracao, de modo que o log
+ * mostra o que de fato esta em uso com o profile ativo.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+public class DatabaseSettingsReport {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseSettingsReport.class);
+
+	private static final String H2_SETTINGS = "SELECT SETTING_NAME, SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS "
+			+ "WHERE SETTING_NAME IN ('info.VERSION', 'MV_STORE', 'CACHE_SIZE', 'QUERY_CACHE_SIZE', 'WRITE_DELAY', "
+			+ "'RETENTION_TIME', 'MAX_COMPACT_TIME') ORDER BY SETTING_NAME";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private Environment environment;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void report() throws SQLException {
+		LOGGER.info("Effective database settings (profiles {}): {}", String.join(",", environment.getActiveProfiles()),
+				settings());
+	}
+
+	/**
+	 * Configuracao efetiva da base, do pool e do Hibernate
+	 *
+	 * @return
+	 * @throws SQLException
+	 */
+	public Map<String, Object> settings() throws SQLException {
+		Map<String, Object> settings = new LinkedHashMap<>();
+
+		// o pool pode estar atras de um proxy (ReplicaDataSourceConfiguration)
+		if (dataSource.isWrapperFor(HikariDataSource.class)) {
+			HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+			settings.put("hikari.pool-name", hikari.getPoolName());
+			settings.put("hikari.maximum-pool-size", hikari.getMaximumPoolSize());
+			settings.put("hikari.minimum-idle", hikari.getMinimumIdle());
+			settings.put("hikari.connection-timeout", hikari.getConnectionTimeout());
+			settings.put("hikari.leak-detection-threshold", hikari.getLeakDetectionThreshold());
+			settings.put("hikari.auto-commit", hikari.isAutoCommit());
+		}
+
+		try (Connection connection = dataSource.getConnection()) {
+			settings.put("url", connection.getMetaData().getURL());
+
+			if ("H2".equals(connection.getMetaData().getDatabaseProductName())) {
+				try (Statement statement = connection.createStatement()) {
+					try (ResultSet resultSet = statement.executeQuery(H2_SETTINGS)) {
+						while (resultSet.next())
+							settings.put("h2." + resultSet.getString(1), resultSet.getString(2));
+					}
+
+					try (ResultSet resultSet = statement.executeQuery("SELECT LOCK_TIMEOUT()")) {
+						resultSet.next();
+						settings.put("h2.LOCK_TIMEOUT", resultSet.getInt(1));
+					}
+				}
+			}
+
+			// o pool pode entregar conexoes sem auto-commit
+			if (!connection.getAutoCommit())
+				connection.rollback();
+		}
+
+		Map<String, Object> properties = entityManagerFactory.getProperties();
+		settings.put("hibernate.jdbc.batch_size", properties.get("hibernate.jdbc.batch_size"));
+		settings.put("hibernate.query.plan_cache_max_size",
+				properties.getOrDefault("hibernate.query.plan_cache_max_size", 2048));
+		settings.put("hibernate.cache.use_second_level_cache",
+				properties.getOrDefault("hibernate.cache.use_second_level_cache", false));
+		settings.put("hibernate.connection.provider_disables_autocommit",
+				properties.getOrDefault("hibernate.connection.provider_disables_autocommit", false));
+		settings.put("spring.jpa.open-in-view", environment.getProperty("spring.jpa.open-in-view", "true"));
+
+		return settings;
+	}
+
+}
@@ -0,0 +1,157 @@
+package bankslips.data;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cálculo da multa dos boletos atrasados
+ * 
+ * Regra para o cálculo da multa aplicada por dia para os boletos atrasados:
+ * <br>
+ * - Até 10 dias: Multa de 0,5% (Juros Simples) <br>
+ * - Acima de 10 dias: Multa de 1% (Juros Simples)
+ * 
+ * Os limites e taxas sao configuraveis; as taxas sao informadas em pontos base
+ * (1/100 de 1%) e o calculo e feito em centavos com aritmetica inteira,
+ * truncando as frações de centavo. O dia atual e obtido do Clock e mantido em
+ * cache ate a virada do dia, de modo que o calculo nao aloca objetos.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+public class FineCalculator {
+
+	/**
+	 * Boleto em dia
+	 */
+	public static final int TIER_NONE = 0;
+
+	/**
+	 * Boleto atrasado ate o limite de dias
+	 */
+	public static final int TIER_UNTIL_LIMIT = 1;
+
+	/**
+	 * Boleto atrasado acima do limite de dias
+	 */
+	public static final int TIER_AFTER_LIMIT = 2;
+
+	private static final long BASIS_POINTS = 10_000L;
+
+	private final Clock clock;
+	private final int limitDays;
+	private final long rateUntilLimit;
+	private final long rateAfterLimit;
+
+	private volatile Today today;
+
+	@Autowired
+	public FineCalculator(Clock clock, //
+			@Value("${bankslips.fine.limit-days:10}") int limitDays, //
+			@Value("${bankslips.fine.rate-until-limit-bp:50}") long rateUntilLimit, //
+			@Value("${bankslips.fine.rate-after-limit-bp:100}") long rateAfterLimit) {
+		this.clock = clock;
+		this.limitDays = limitDays;
+		this.rateUntilLimit = rateUntilLimit;
+		this.rateAfterLimit = rateAfterLimit;
+	}
+
+	/**
+	 * Dia atual (dias desde 1970-01-01) de acordo com o Clock
+	 * 
+	 * @return
+	 */
+	public long today() {
+		long now = clock.millis();
+
+		Today cached = today;
+		if (cached == null || now < cached.startMillis || now >= cached.endMillis) {
+			cached = new Today(now, clock.getZone());
+			today = cached;
+		}
+
+		return cached.epochDay;
+	}
+
+	/**
+	 * Quantidade de dias em atraso (zero ou negativo para boletos em dia)
+	 * 
+	 * @param dueEpochDay
+	 * @return
+	 */
+	public long overdueDays(long dueEpochDay) {
+		return today() - dueEpochDay;
+	}
+
+	/**
+	 * Faixa de multa para o vencimento informado
+	 * 
+	 * @param dueEpochDay
+	 * @return TIER_NONE, TIER_UNTIL_LIMIT ou TIER_AFTER_LIMIT
+	 */
+	public int tier(long dueEpochDay) {
+		long overdueDays = overdueDays(dueEpochDay);
+
+		if (overdueDays <= 0)
+			return TIER_NONE;
+
+		return overdueDays > limitDays ? TIER_AFTER_LIMIT : TIER_UNTIL_LIMIT;
+	}
+
+	/**
+	 * Ultimo vencimento (dias desde 1970-01-01) que ja esta na faixa informada
+	 * ou em uma faixa superior
+	 * 
+	 * @param tier
+	 *            TIER_UNTIL_LIMIT ou TIER_AFTER_LIMIT
+	 * @return
+	 */
+	public long lastDueEpochDay(int tier) {
+		return tier == TIER_AFTER_LIMIT ? today() - limitDays - 1 : today() - 1;
+	}
+
+	/**
+	 * Valor da multa em centavos para a faixa informada
+	 * 
+	 * @param totalInCents
+	 * @param tier
+	 * @return
+	 */
+	public long fine(long totalInCents, int tier) {
+		switch (tier) {
+		case TIER_UNTIL_LIMIT:
+			return totalInCents * rateUntilLimit / BASIS_POINTS;
+		case TIER_AFTER_LIMIT:
+			return totalInCents * rateAfterLimit / BASIS_POINTS;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Dia atual e o intervalo (em milissegundos) em que ele e valido
+	 */
+	private static final class Today {
+
+		private final long epochDay;
+		private final long startMillis;
+		private final long endMillis;
+
+		private Today(long now, ZoneId zone) {
+			LocalDate date = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+
+			this.epochDay = date.toEpochDay();
+			this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+			this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		}
+
+	}
+
+}
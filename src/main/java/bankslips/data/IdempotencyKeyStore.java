@@ -0,0 +1,111 @@
+package bankslips.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import bankslips.exceptions.BankSlipIdempotencyKeyReuseException;
+
+/**
+ * Respostas recentes por chave de idempotencia (header Idempotency-Key)
+ * 
+ * A primeira requisicao com uma chave executa a operacao e guarda a resposta;
+ * as repeticoes com a mesma chave recebem a resposta original sem acessar a
+ * base, inclusive quando chegam enquanto a primeira ainda esta em execucao.
+ * Operacoes que falham nao sao guardadas e podem ser repetidas. As chaves
+ * expiram por tempo e por quantidade.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Component
+public class IdempotencyKeyStore {
+
+	public static final String HEADER = "Idempotency-Key";
+
+	private final Cache<String, Entry> entries;
+
+	@Autowired
+	public IdempotencyKeyStore(@Value("${bankslips.idempotency.max-keys:100000}") long maxKeys,
+			@Value("${bankslips.idempotency.ttl-seconds:86400}") long ttlSeconds) {
+		this.entries = Caffeine.newBuilder() //
+				.maximumSize(maxKeys) //
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS) //
+				.build();
+	}
+
+	/**
+	 * Executa a operacao uma unica vez por chave
+	 * 
+	 * @param operation
+	 *            nome da operacao, para que a mesma chave possa ser usada em
+	 *            operacoes diferentes
+	 * @param key
+	 *            chave informada pelo cliente; sem chave a operacao e sempre
+	 *            executada
+	 * @param request
+	 *            conteudo da requisicao, comparado com equals; uma chave repetida
+	 *            com outro conteudo e rejeitada
+	 * @param action
+	 * @return Resposta da operacao (original, no caso de repeticao)
+	 */
+	public <T> T execute(String operation, String key, Object request, Supplier<T> action) {
+		if (key == null)
+			return action.get();
+
+		String scopedKey = operation + ':' + key;
+		Entry entry = new Entry(request);
+
+		Entry existing = entries.asMap().putIfAbsent(scopedKey, entry);
+		if (existing != null)
+			return existing.await(request);
+
+		try {
+			T response = action.get();
+			entry.response.complete(response);
+			return response;
+		} catch (RuntimeException e) {
+			// a operacao pode ser repetida com a mesma chave
+			entries.asMap().remove(scopedKey, entry);
+			entry.response.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static final class Entry {
+
+		private final Object request;
+		private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+		private Entry(Object request) {
+			this.request = request;
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> T await(Object request) {
+			if (!this.request.equals(request))
+				throw new BankSlipIdempotencyKeyReuseException();
+
+			try {
+				return (T) response.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IllegalStateException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,111 @@
+package bankslips.data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Posicao da varredura diaria dos boletos atrasados
+ * 
+ * Existe um unico registro, atualizado na mesma transacao de cada bloco
+ * processado; apos um reinicio a varredura do dia continua da faixa e do
+ * ultimo boleto (vencimento + id) gravados.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Entity
+public class OverdueSweepCheckpoint implements Serializable {
+
+	private static final long serialVersionUID = 4242417526617958123L;
+
+	public static final int ID = 1;
+
+	@Id
+	private int id = ID;
+
+	@Column(nullable = false)
+	private LocalDate sweepDate;
+	@Column(nullable = false, columnDefinition = "tinyint")
+	private int fineTier;
+	private LocalDate lastDueDate;
+	@JdbcTypeCode(SqlTypes.BINARY)
+	@Column(columnDefinition = "binary(16)")
+	private UUID lastId;
+	@Column(nullable = false)
+	private boolean completed;
+
+	/**
+	 * Reinicia a varredura para o dia informado
+	 * 
+	 * @param sweepDate
+	 */
+	public void restart(LocalDate sweepDate) {
+		this.sweepDate = sweepDate;
+		this.fineTier = FineCalculator.TIER_NONE;
+		this.lastDueDate = null;
+		this.lastId = null;
+		this.completed = false;
+	}
+
+	/**
+	 * Posicao do ultimo boleto processado na faixa atual
+	 * 
+	 * @return null no inicio da faixa
+	 */
+	public BankSlipCursor getCursor() {
+		return lastId == null ? null : new BankSlipCursor(lastDueDate, lastId);
+	}
+
+	public void setCursor(BankSlipCursor cursor) {
+		this.lastDueDate = cursor == null ? null : cursor.getDueDate();
+		this.lastId = cursor == null ? null : cursor.getId();
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public LocalDate getSweepDate() {
+		return sweepDate;
+	}
+
+	public void setSweepDate(LocalDate sweepDate) {
+		this.sweepDate = sweepDate;
+	}
+
+	/**
+	 * Faixa de multa gravada dos boletos sendo percorridos
+	 * 
+	 * @return
+	 */
+	public int getFineTier() {
+		return fineTier;
+	}
+
+	public void setFineTier(int fineTier) {
+		this.fineTier = fineTier;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	@Override
+	public String toString() {
+		return "OverdueSweepCheckpoint [sweepDate=" + sweepDate + ", fineTier=" + fineTier + ", lastDueDate="
+				+ lastDueDate + ", lastId=" + lastId + ", completed=" + completed + "]";
+	}
+
+}
@@ -0,0 +1,7 @@
+package bankslips.data;
+
+import org.springframework.data.repository.CrudRepository;
+
+public interface OverdueSweepCheckpointRepository extends CrudRepository<OverdueSweepCheckpoint, Integer> {
+
+}
@@ -0,0 +1,156 @@
+package bankslips.data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Varredura diaria dos boletos atrasados
+ * 
+ * Grava a multa e a faixa de multa dos boletos pendentes vencidos, para que as
+ * listagens exibam a multa sem calcula-la a cada registro. Como a multa depende
+ * apenas da faixa, sao lidos somente os boletos cuja faixa gravada mudou desde a
+ * ultima varredura: primeiro os que ainda estao na faixa TIER_NONE e ja
+ * venceram, depois os que estao na faixa TIER_UNTIL_LIMIT e passaram do limite
+ * de dias.
+ * 
+ * Os boletos sao percorridos em blocos ordenados por vencimento e id; cada bloco
+ * e gravado em uma transacao junto com a posicao da varredura
+ * (OverdueSweepCheckpoint), de modo que uma varredura interrompida continua de
+ * onde parou, em segundo plano, ao iniciar a aplicacao. Com shards, cada shard e varrido em
+ * paralelo, com a sua propria posicao.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Service
+@Lazy(false)
+public class OverdueSweepService {
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private OverdueSweepCheckpointRepository checkpointRepository;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	@Autowired
+	private FineCalculator fineCalculator;
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+
+	@Value("${bankslips.overdue-sweep.batch-size:500}")
+	private int batchSize;
+
+	private final TransactionTemplate transactionTemplate;
+
+	@Autowired
+	public OverdueSweepService(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Scheduled(cron = "${bankslips.overdue-sweep.cron:0 0 1 * * *}")
+	public void scheduledSweep() {
+		sweep();
+	}
+
+	/**
+	 * Conclui a varredura do dia caso a aplicacao tenha sido interrompida antes
+	 * do fim (ou iniciada depois do horario agendado)
+	 * 
+	 * A varredura e executada no scheduler da varredura diaria, e nao na thread
+	 * do evento: depois de uma longa interrupcao ela nao atrasa o fim da
+	 * inicializacao.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeSweep() {
+		taskScheduler.schedule(this::sweep, Instant.now());
+	}
+
+	/**
+	 * Executa (ou continua) a varredura do dia atual
+	 * 
+	 * @return quantidade de boletos com a multa atualizada
+	 */
+	public synchronized int sweep() {
+		int updated = 0;
+		for (int shardUpdated : bankSlipShards.scatter(shard -> sweepShard()))
+			updated += shardUpdated;
+
+		return updated;
+	}
+
+	private int sweepShard() {
+		int updated = 0;
+
+		Integer batchUpdated;
+		while ((batchUpdated = transactionTemplate.execute(status -> sweepBatch())) != null)
+			updated += batchUpdated;
+
+		return updated;
+	}
+
+	/**
+	 * Processa o proximo bloco da varredura
+	 * 
+	 * @return quantidade de boletos atualizados ou null quando a varredura do dia
+	 *         ja foi concluida
+	 */
+	private Integer sweepBatch() {
+		LocalDate today = LocalDate.ofEpochDay(fineCalculator.today());
+
+		OverdueSweepCheckpoint checkpoint = checkpointRepository.findById(OverdueSweepCheckpoint.ID)
+				.orElseGet(OverdueSweepCheckpoint::new);
+		if (!today.equals(checkpoint.getSweepDate()))
+			checkpoint.restart(today);
+
+		if (checkpoint.isCompleted())
+			return null;
+
+		int fineTier = checkpoint.getFineTier();
+		LocalDate lastDueDate = LocalDate.ofEpochDay(fineCalculator.lastDueEpochDay(fineTier + 1));
+
+		List<BankSlip> bankSlips = bankSlipRepository.findPendingByFineTier(fineTier, lastDueDate,
+				checkpoint.getCursor(), batchSize);
+
+		int updated = 0;
+		for (BankSlip bankSlip : bankSlips) {
+			int tier = fineCalculator.tier(bankSlip.getDueDate().toEpochDay());
+			long fine = fineCalculator.fine(bankSlip.getTotalInCents(), tier);
+
+			// boletos pagos ou atualizados depois da leitura sao ignorados
+			updated += bankSlipRepository.updateFine(bankSlip.getId(), BankSlipStatusEnum.PENDING, fineTier, tier,
+					fine);
+		}
+
+		if (bankSlips.size() < batchSize) {
+			// fim da faixa atual
+			checkpoint.setCursor(null);
+			checkpoint.setFineTier(fineTier + 1);
+			checkpoint.setCompleted(fineTier + 1 == FineCalculator.TIER_AFTER_LIMIT);
+		} else {
+			checkpoint.setCursor(BankSlipCursor.after(bankSlips.get(bankSlips.size() - 1)));
+		}
+
+		checkpointRepository.save(checkpoint);
+
+		return updated;
+	}
+
+}
@@ -0,0 +1,109 @@
+package bankslips.data;
+
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Posicao de replicacao exigida das leituras feitas nas replicas na thread
+ * atual (read-your-writes)
+ *
+ * Uma sessao (begin/end, normalmente uma requisicao HTTP) informa a posicao da
+ * ultima escrita vista pelo cliente (session token); as leituras da sessao so
+ * usam replicas que ja chegaram a essa posicao. As escritas da propria sessao
+ * elevam a posicao exigida e sao informadas ao listener da sessao, que devolve
+ * a nova posicao ao cliente. Fora de uma sessao nenhuma posicao e exigida.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public final class ReadYourWrites {
+
+	private static final ThreadLocal<Session> SESSION = new ThreadLocal<>();
+
+	private static final ThreadLocal<Boolean> READING_LAST_WRITE = new ThreadLocal<>();
+
+	private ReadYourWrites() {
+
+	}
+
+	/**
+	 * Inicia a sessao da thread atual
+	 *
+	 * @param requiredPosition
+	 *            posicao da ultima escrita vista pelo cliente (0 se nenhuma)
+	 * @param onWrite
+	 *            recebe a posicao de cada escrita feita na sessao
+	 */
+	public static void begin(long requiredPosition, LongConsumer onWrite) {
+		SESSION.set(new Session(requiredPosition, onWrite));
+	}
+
+	public static void end() {
+		SESSION.remove();
+	}
+
+	/**
+	 * Posicao que uma replica deve ter para atender as leituras da thread atual
+	 *
+	 * @return
+	 */
+	public static long requiredPosition() {
+		Session session = SESSION.get();
+		return session == null ? 0 : session.requiredPosition;
+	}
+
+	/**
+	 * Registra uma escrita confirmada na thread atual
+	 *
+	 * @param position
+	 */
+	static void written(long position) {
+		Session session = SESSION.get();
+		if (session == null)
+			return;
+
+		session.requiredPosition = Math.max(session.requiredPosition, position);
+		session.onWrite.accept(position);
+	}
+
+	/**
+	 * Executa uma leitura que tambem deve ver a ultima escrita feita por esta
+	 * instancia, de qualquer sessao (ReplicaRoutingDataSource.getLastWritten)
+	 *
+	 * Usada nas leituras que preenchem o cache de boletos: o cache e limpo pelas
+	 * escritas desta instancia, e uma replica atrasada o preencheria com a versao
+	 * anterior a escrita.
+	 *
+	 * @param read
+	 * @return
+	 */
+	public static <T> T readingLastWrite(Supplier<T> read) {
+		if (READING_LAST_WRITE.get() != null)
+			return read.get();
+
+		READING_LAST_WRITE.set(Boolean.TRUE);
+		try {
+			return read.get();
+		} finally {
+			READING_LAST_WRITE.remove();
+		}
+	}
+
+	static boolean isReadingLastWrite() {
+		return READING_LAST_WRITE.get() != null;
+	}
+
+	private static class Session {
+
+		private long requiredPosition;
+
+		private final LongConsumer onWrite;
+
+		private Session(long requiredPosition, LongConsumer onWrite) {
+			this.requiredPosition = requiredPosition;
+			this.onWrite = onWrite;
+		}
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package bankslips.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Replicas de leitura (bankslips.replicas.urls, separadas por virgula)
+ *
+ * O primario e configurado pelas propriedades spring.datasource.*; cada replica
+ * tem um pool com a mesma configuracao do primario, somente leitura. O
+ * DataSource usado pelo JPA obtem a conexao real apenas no primeiro comando,
+ * quando ja se sabe se a transacao e somente leitura: transacoes somente
+ * leitura (@Transactional(readOnly = true) e as leituras dos repositorios) vao
+ * para as replicas, as demais para o primario.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "bankslips.replicas.urls")
+public class ReplicaDataSourceConfiguration {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+			@Value("${bankslips.replicas.urls}") List<String> urls) {
+		String poolName = primaryDataSource.getPoolName() == null ? "bankslips" : primaryDataSource.getPoolName();
+
+		List<HikariDataSource> replicas = new ArrayList<>();
+		for (int i = 0; i < urls.size(); i++) {
+			HikariConfig config = new HikariConfig();
+			primaryDataSource.copyStateTo(config);
+			config.setJdbcUrl(urls.get(i).trim());
+			config.setPoolName(poolName + "-replica-" + (i + 1));
+			config.setReadOnly(true);
+			replicas.add(new HikariDataSource(config));
+		}
+
+		return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+		dataSource.setReadOnlyDataSource(replicaDataSource);
+		return dataSource;
+	}
+
+	@Bean
+	public ReplicationPositionListener replicationPositionListener() {
+		return new ReplicationPositionListener();
+	}
+
+}
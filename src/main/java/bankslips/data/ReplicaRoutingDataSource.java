@@ -0,0 +1,150 @@
+package bankslips.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Conexoes das transacoes somente leitura: replicas em rodizio, ou o primario
+ * quando nenhuma replica esta disponivel e em dia com a posicao exigida
+ *
+ * A posicao de cada replica (tabela replication_position, replicada do
+ * primario) e guardada na ultima leitura; so e consultada de novo quando uma
+ * leitura exige posicao maior que a guardada, na propria conexao que atendera
+ * a leitura. A posicao exigida vem da sessao da thread (ReadYourWrites) e, nas
+ * leituras que preenchem o cache, da ultima escrita desta instancia.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	static final String POSITION_QUERY = "SELECT position FROM replication_position WHERE id = 1";
+
+	private final DataSource primary;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final AtomicLong lastWritten = new AtomicLong();
+
+	public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+		this.primary = primary;
+		for (DataSource replica : replicas)
+			this.replicas.add(new Replica(replica));
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long required = ReadYourWrites.requiredPosition();
+		if (ReadYourWrites.isReadingLastWrite())
+			required = Math.max(required, lastWritten.get());
+
+		int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+		for (int i = 0; i < replicas.size(); i++) {
+			Connection connection = replicas.get((first + i) % replicas.size()).getConnection(required);
+			if (connection != null)
+				return connection;
+		}
+
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	/**
+	 * Registra a posicao de uma escrita confirmada no primario
+	 *
+	 * @param position
+	 */
+	public void written(long position) {
+		lastWritten.accumulateAndGet(position, Math::max);
+	}
+
+	/**
+	 * Posicao da ultima escrita confirmada por esta instancia
+	 *
+	 * @return
+	 */
+	public long getLastWritten() {
+		return lastWritten.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Replica replica : replicas)
+			if (replica.dataSource instanceof Closeable)
+				((Closeable) replica.dataSource).close();
+	}
+
+	private static class Replica {
+
+		private final DataSource dataSource;
+
+		private final AtomicLong position = new AtomicLong();
+
+		private Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		/**
+		 * Conexao com a replica, se disponivel e com a posicao exigida
+		 *
+		 * @param required
+		 * @return null caso contrario
+		 */
+		private Connection getConnection(long required) {
+			Connection connection;
+			try {
+				connection = dataSource.getConnection();
+			} catch (SQLException e) {
+				LOGGER.debug("Replica unavailable, trying next", e);
+				return null;
+			}
+
+			try {
+				if (position.get() >= required || refresh(connection) >= required)
+					return connection;
+			} catch (SQLException e) {
+				LOGGER.debug("Replica position unavailable, trying next", e);
+			}
+
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				LOGGER.debug("Replica connection not closed", e);
+			}
+			return null;
+		}
+
+		private long refresh(Connection connection) throws SQLException {
+			try (Statement statement = connection.createStatement();
+					ResultSet resultSet = statement.executeQuery(POSITION_QUERY)) {
+				long current = resultSet.next() ? resultSet.getLong(1) : 0;
+				return position.accumulateAndGet(current, Math::max);
+			}
+		}
+
+	}
+
+}
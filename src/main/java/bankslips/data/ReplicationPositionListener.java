@@ -0,0 +1,63 @@
+package bankslips.data;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Incrementa a posicao de replicacao no commit de cada transacao de escrita e
+ * informa a posicao confirmada a ReplicaRoutingDataSource e a sessao da thread
+ * (ReadYourWrites)
+ *
+ * O incremento e feito na propria transacao, antes do commit: a linha fica
+ * bloqueada ate o commit, de modo que as posicoes seguem a ordem dos commits e
+ * uma replica com posicao maior ou igual ja recebeu a escrita. Em troca, os
+ * commits de escrita sao serializados nessa linha.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class ReplicationPositionListener implements TransactionExecutionListener {
+
+	private static final String INCREMENT = "UPDATE replication_position SET position = position + 1 WHERE id = 1";
+
+	private final ThreadLocal<Long> pending = new ThreadLocal<>();
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private ReplicaRoutingDataSource replicaDataSource;
+
+	@Override
+	public void beforeCommit(TransactionExecution transaction) {
+		if (transaction.isReadOnly() || !transaction.isNewTransaction())
+			return;
+
+		entityManager.createNativeQuery(INCREMENT).executeUpdate();
+		pending.set(((Number) entityManager.createNativeQuery(ReplicaRoutingDataSource.POSITION_QUERY)
+				.getSingleResult()).longValue());
+	}
+
+	@Override
+	public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+		Long position = pending.get();
+		if (position == null)
+			return;
+
+		pending.remove();
+		if (commitFailure == null) {
+			replicaDataSource.written(position);
+			ReadYourWrites.written(position);
+		}
+	}
+
+	@Override
+	public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+		pending.remove();
+	}
+
+}
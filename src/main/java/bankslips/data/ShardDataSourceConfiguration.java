@@ -0,0 +1,84 @@
+package bankslips.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Shards da base de boletos (bankslips.shards.urls, separadas por virgula)
+ *
+ * Cada shard tem um pool com a configuracao de spring.datasource.hikari e o
+ * esquema completo, migrado pelo Flyway em todos os shards. Os shards sao
+ * identificados pela posicao na lista: novos shards devem ser acrescentados no
+ * final, seguidos da redistribuicao (ShardRebalancer).
+ *
+ * O shard e escolhido antes de cada transacao (BankSlipShards.on); com o
+ * spring.jpa.open-in-view a conexao da primeira transacao seria mantida ate o
+ * fim da requisicao, por isso ele deve estar desabilitado. As replicas de
+ * leitura (bankslips.replicas.urls) nao sao suportadas com shards.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "bankslips.shards.urls")
+public class ShardDataSourceConfiguration {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariConfig shardHikariConfig() {
+		return new HikariConfig();
+	}
+
+	@Bean
+	@Primary
+	public ShardRoutingDataSource dataSource(HikariConfig shardHikariConfig, DataSourceProperties properties,
+			@Value("${bankslips.shards.urls}") List<String> urls, Environment environment) {
+		if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true))
+			throw new IllegalStateException("Sharded storage requires spring.jpa.open-in-view=false");
+		if (environment.containsProperty("bankslips.replicas.urls"))
+			throw new IllegalStateException("Read replicas are not supported with sharded storage");
+
+		String poolName = shardHikariConfig.getPoolName() == null ? "bankslips" : shardHikariConfig.getPoolName();
+
+		List<HikariDataSource> shards = new ArrayList<>();
+		for (int i = 0; i < urls.size(); i++) {
+			HikariConfig config = new HikariConfig();
+			shardHikariConfig.copyStateTo(config);
+			config.setJdbcUrl(urls.get(i).trim());
+			config.setUsername(properties.determineUsername());
+			config.setPassword(properties.determinePassword());
+			config.setPoolName(poolName + "-shard-" + i);
+			shards.add(new HikariDataSource(config));
+		}
+
+		return new ShardRoutingDataSource(shards);
+	}
+
+	/**
+	 * Migra o esquema de cada shard
+	 *
+	 * @param shards
+	 * @return
+	 */
+	@Bean
+	public FlywayMigrationStrategy shardFlywayMigrationStrategy(BankSlipShards shards) {
+		return flyway -> {
+			for (int shard = 0; shard < shards.count(); shard++)
+				shards.on(shard, flyway::migrate);
+		};
+	}
+
+}
@@ -0,0 +1,198 @@
+package bankslips.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Redistribuicao dos boletos entre os shards
+ * 
+ * Quando um shard e acrescentado, os boletos que passam a pertencer a ele no
+ * anel de hash consistente (cerca de 1/N) continuam no shard anterior, onde sao
+ * encontrados pelas consultas por id (BankSlipShards.findFirst) e pelas
+ * listagens ate serem movidos. A redistribuicao percorre cada shard em blocos
+ * ordenados por id e move os boletos de cada bloco que pertencem a outro shard:
+ * os boletos sao bloqueados na origem, copiados para o destino com a mesma
+ * versao em uma transacao propria e so entao removidos da origem. Alteracoes
+ * concorrentes esperam a copia e, depois dela, sao feitas no destino.
+ * 
+ * Entre a copia e a remocao o boleto esta nos dois shards: as listagens
+ * descartam a repeticao, mas o resumo do cliente o conta duas vezes. Uma
+ * redistribuicao interrompida nesse intervalo e concluida na execucao seguinte,
+ * que mantem a copia do destino.
+ * 
+ * Com bankslips.shards.rebalance-on-startup a redistribuicao e executada ao
+ * iniciar a aplicacao.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@Service
+@Lazy(false)
+public class ShardRebalancer {
+
+	private static final String UPDATE_VERSION = "UPDATE BankSlip e SET e.version = :version WHERE e.id = :id";
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private CustomerSummaryService customerSummaryService;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${bankslips.shards.rebalance-batch-size:500}")
+	private int batchSize;
+
+	@Value("${bankslips.shards.rebalance-on-startup:false}")
+	private boolean rebalanceOnStartup;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final TransactionTemplate copyTransactionTemplate;
+
+	@Autowired
+	public ShardRebalancer(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.copyTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.copyTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebalanceOnStartup() {
+		if (rebalanceOnStartup)
+			rebalance();
+	}
+
+	/**
+	 * Move os boletos que estao fora do seu shard; os shards sao percorridos em
+	 * paralelo
+	 * 
+	 * @return quantidade de boletos movidos
+	 */
+	public synchronized int rebalance() {
+		if (bankSlipShards.count() == 1)
+			return 0;
+
+		int moved = 0;
+		for (int shardMoved : bankSlipShards.scatter(this::rebalance))
+			moved += shardMoved;
+
+		return moved;
+	}
+
+	private int rebalance(int shard) {
+		int moved = 0;
+
+		UUID after = new UUID(0, 0);
+		for (;;) {
+			List<BankSlip> bankSlips = bankSlipRepository.findByIdGreaterThanOrderByIdAsc(after,
+					PageRequest.of(0, batchSize));
+
+			// boletos de outros shards, pelo shard de destino
+			Map<Integer, List<UUID>> misplaced = new TreeMap<>();
+			for (BankSlip bankSlip : bankSlips) {
+				int target = bankSlipShards.shardOf(bankSlip);
+				if (target != shard)
+					misplaced.computeIfAbsent(target, key -> new ArrayList<>()).add(bankSlip.getId());
+			}
+
+			for (Map.Entry<Integer, List<UUID>> entry : misplaced.entrySet())
+				moved += move(entry.getValue(), entry.getKey());
+
+			if (bankSlips.size() < batchSize)
+				return moved;
+
+			after = bankSlips.get(bankSlips.size() - 1).getId();
+		}
+	}
+
+	/**
+	 * Move os boletos do shard atual para o shard de destino
+	 * 
+	 * @param ids
+	 * @param target
+	 * @return quantidade de boletos movidos
+	 */
+	private int move(List<UUID> ids, int target) {
+		return transactionTemplate.execute(status -> {
+			// boletos removidos depois da leitura nao sao encontrados
+			List<BankSlip> bankSlips = bankSlipRepository.lockAllById(ids);
+			if (bankSlips.isEmpty())
+				return 0;
+
+			bankSlipShards.on(target, () -> copyTransactionTemplate.execute(copyStatus -> copy(bankSlips)));
+
+			for (BankSlip bankSlip : bankSlips)
+				entityManager.remove(bankSlip);
+			customerSummaryService.remove(bankSlips);
+
+			return bankSlips.size();
+		});
+	}
+
+	/**
+	 * Grava as copias dos boletos no shard atual e as soma aos resumos dos
+	 * clientes
+	 * 
+	 * @param bankSlips
+	 * @return quantidade de boletos copiados
+	 */
+	private int copy(List<BankSlip> bankSlips) {
+		List<UUID> ids = new ArrayList<>(bankSlips.size());
+		for (BankSlip bankSlip : bankSlips)
+			ids.add(bankSlip.getId());
+
+		// copias de uma redistribuicao interrompida
+		Set<UUID> copied = new HashSet<>();
+		for (BankSlip bankSlip : bankSlipRepository.findAllById(ids))
+			copied.add(bankSlip.getId());
+
+		List<BankSlip> copies = new ArrayList<>(bankSlips.size());
+		for (BankSlip bankSlip : bankSlips) {
+			if (copied.contains(bankSlip.getId()))
+				continue;
+
+			BankSlip copy = bankSlip.copy();
+			entityManager.persist(copy);
+			copies.add(copy);
+		}
+		entityManager.flush();
+
+		// a copia mantem a versao do boleto (ETag)
+		for (BankSlip bankSlip : bankSlips) {
+			if (!copied.contains(bankSlip.getId()))
+				entityManager.createQuery(UPDATE_VERSION) //
+						.setParameter("version", bankSlip.getVersion()) //
+						.setParameter("id", bankSlip.getId()) //
+						.executeUpdate();
+		}
+
+		customerSummaryService.add(copies);
+
+		return copies.size();
+	}
+
+}
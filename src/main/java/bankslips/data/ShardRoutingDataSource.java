@@ -0,0 +1,65 @@
+package bankslips.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Conexoes do shard selecionado na thread atual (BankSlipShards.on), ou do
+ * shard 0 fora de uma selecao
+ *
+ * A conexao e obtida no inicio da transacao: o shard deve ser selecionado antes
+ * dela, e a transacao continua no mesmo shard ate o fim.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+	private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+	private final List<? extends DataSource> shards;
+
+	public ShardRoutingDataSource(List<? extends DataSource> shards) {
+		this.shards = shards;
+
+		Map<Object, Object> targets = new HashMap<>();
+		for (int shard = 0; shard < shards.size(); shard++)
+			targets.put(shard, shards.get(shard));
+
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(shards.get(0));
+		setLenientFallback(false);
+		afterPropertiesSet();
+	}
+
+	static Integer current() {
+		return CURRENT.get();
+	}
+
+	static void use(Integer shard) {
+		if (shard == null)
+			CURRENT.remove();
+		else
+			CURRENT.set(shard);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return CURRENT.get();
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (DataSource shard : shards)
+			if (shard instanceof Closeable)
+				((Closeable) shard).close();
+	}
+
+}
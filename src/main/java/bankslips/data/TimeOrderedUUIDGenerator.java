@@ -0,0 +1,67 @@
+package bankslips.data;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gerador de UUIDs ordenados pelo tempo (versao 7)
+ * 
+ * Os 48 bits iniciais sao o timestamp em milissegundos, seguidos de um contador
+ * de 12 bits e de 62 bits aleatorios. Ids gerados em sequencia sao crescentes,
+ * mesmo entre threads diferentes, e os inserts ficam concentrados no final do
+ * indice da chave primaria em vez de espalhados por toda a arvore (como
+ * acontece com UUIDs aleatorios).
+ * 
+ * A sequencia e mantida com compare-and-set, sem locks; quando o contador se
+ * esgota dentro do mesmo milissegundo o timestamp e adiantado em 1ms.
+ * 
+ * O id e atribuido pelo proprio BankSlip antes do insert; boletos que ja
+ * recebem o id antes de serem gravados (criacao assincrona) mantem o id
+ * atribuido.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public final class TimeOrderedUUIDGenerator {
+
+	private static final int COUNTER_BITS = 12;
+
+	private static final long VERSION = 0x7000L;
+	private static final long VARIANT = 0x8000000000000000L;
+	private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+	/**
+	 * Ultimo valor gerado: timestamp e contador
+	 */
+	private static final AtomicLong LAST = new AtomicLong();
+
+	private TimeOrderedUUIDGenerator() {
+	}
+
+	/**
+	 * Gera o proximo id
+	 * 
+	 * @return
+	 */
+	public static UUID next() {
+		long next;
+		for (;;) {
+			long last = LAST.get();
+			long now = System.currentTimeMillis() << COUNTER_BITS;
+
+			next = now > last ? now : last + 1;
+			if (LAST.compareAndSet(last, next))
+				break;
+		}
+
+		long millis = next >>> COUNTER_BITS;
+		long counter = next & ((1L << COUNTER_BITS) - 1);
+
+		long mostSigBits = (millis << 16) | VERSION | counter;
+		long leastSigBits = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+
+		return new UUID(mostSigBits, leastSigBits);
+	}
+
+}
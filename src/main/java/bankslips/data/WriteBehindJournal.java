@@ -0,0 +1,265 @@
+package bankslips.data;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bankslips.data.dto.BankSlipDTO;
+
+/**
+ * Journal local (somente acrescimo) dos boletos aceitos pela criacao assincrona
+ * 
+ * Cada boleto e gravado como uma linha JSON antes de ser colocado na fila, de
+ * modo que os boletos aceitos e ainda nao gravados na base sao recuperados
+ * apos uma queda. O journal e dividido em segmentos: quando o segmento atual
+ * atinge o tamanho maximo um novo e aberto, e os segmentos fechados sao
+ * apagados assim que todos os seus boletos sao gravados na base.
+ * 
+ * Os boletos recusados pela base sao movidos para o arquivo REJECTED (NDJSON),
+ * de onde podem ser corrigidos e reenviados pela criacao em lote.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class WriteBehindJournal implements Closeable {
+
+	private static final String PREFIX = "bankslips-";
+	private static final String SUFFIX = ".journal";
+
+	/**
+	 * Arquivo dos boletos recusados pela base, no diretorio do journal
+	 */
+	public static final String REJECTED = "rejected.ndjson";
+
+	private final Path directory;
+	private final ObjectMapper objectMapper;
+	private final long segmentSize;
+	private final boolean sync;
+
+	/**
+	 * Segmentos existentes na abertura do journal
+	 */
+	private final List<Path> recoveredSegments;
+
+	/**
+	 * Protege o segmento atual; ReentrantLock em vez de synchronized para que
+	 * o fsync nao prenda a thread de plataforma das virtual threads
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private long nextIndex;
+	private Segment current;
+
+	/**
+	 * Abre o journal no diretorio informado
+	 * 
+	 * @param directory
+	 * @param objectMapper
+	 * @param segmentSize
+	 *            tamanho (em bytes) a partir do qual um novo segmento e aberto
+	 * @param sync
+	 *            grava cada boleto no disco (fsync) antes de aceita-lo
+	 * @throws IOException
+	 */
+	public WriteBehindJournal(Path directory, ObjectMapper objectMapper, long segmentSize, boolean sync)
+			throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.objectMapper = objectMapper;
+		this.segmentSize = segmentSize;
+		this.sync = sync;
+
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			for (Path segment : stream)
+				segments.add(segment);
+		}
+		Collections.sort(segments);
+
+		this.recoveredSegments = segments;
+		this.nextIndex = segments.isEmpty() ? 0 : index(segments.get(segments.size() - 1)) + 1;
+		this.current = openSegment();
+	}
+
+	/**
+	 * Acrescenta o boleto ao segmento atual
+	 * 
+	 * @param bankSlipDTO
+	 * @return Segmento em que o boleto foi gravado; deve ser informado quando o
+	 *         boleto for gravado na base
+	 * @throws IOException
+	 */
+	public Segment append(BankSlipDTO bankSlipDTO) throws IOException {
+		ByteBuffer line = line(bankSlipDTO);
+
+		lock.lock();
+		try {
+			Segment segment = current;
+			while (line.hasRemaining())
+				segment.channel.write(line);
+			if (sync)
+				segment.channel.force(false);
+
+			segment.accepted();
+
+			if (segment.channel.size() >= segmentSize) {
+				current = openSegment();
+				segment.close();
+			}
+
+			return segment;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Acrescenta ao arquivo REJECTED o boleto recusado pela base; o boleto deve
+	 * continuar sendo informado como gravado no seu segmento
+	 * 
+	 * @param bankSlipDTO
+	 * @throws IOException
+	 */
+	public void reject(BankSlipDTO bankSlipDTO) throws IOException {
+		ByteBuffer line = line(bankSlipDTO);
+
+		lock.lock();
+		try (FileChannel channel = FileChannel.open(directory.resolve(REJECTED), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			while (line.hasRemaining())
+				channel.write(line);
+			if (sync)
+				channel.force(false);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Boletos gravados nos segmentos existentes na abertura do journal
+	 * 
+	 * Uma linha incompleta no final de um segmento (queda durante a escrita) e
+	 * ignorada: o boleto nao chegou a ser aceito.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public List<BankSlipDTO> recover() throws IOException {
+		List<BankSlipDTO> bankSlipDTOs = new ArrayList<>();
+
+		for (Path segment : recoveredSegments) {
+			try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					try {
+						bankSlipDTOs.add(objectMapper.readValue(line, BankSlipDTO.class));
+					} catch (JsonProcessingException e) {
+						break;
+					}
+				}
+			}
+		}
+
+		return bankSlipDTOs;
+	}
+
+	/**
+	 * Apaga os segmentos recuperados, depois que os seus boletos foram gravados
+	 * na base
+	 * 
+	 * @throws IOException
+	 */
+	public void deleteRecovered() throws IOException {
+		for (Path segment : recoveredSegments)
+			Files.deleteIfExists(segment);
+
+		recoveredSegments.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			current.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private ByteBuffer line(BankSlipDTO bankSlipDTO) throws IOException {
+		byte[] json = objectMapper.writeValueAsBytes(bankSlipDTO);
+
+		ByteBuffer line = ByteBuffer.allocate(json.length + 1);
+		line.put(json).put((byte) '\n').flip();
+
+		return line;
+	}
+
+	private Segment openSegment() throws IOException {
+		Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextIndex++, SUFFIX));
+		return new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+	}
+
+	private static long index(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	/**
+	 * Segmento do journal e a quantidade de boletos ainda nao gravados na base
+	 */
+	public static final class Segment {
+
+		private final Path path;
+		private final FileChannel channel;
+
+		private int pending;
+		private boolean closed;
+
+		private Segment(Path path, FileChannel channel) {
+			this.path = path;
+			this.channel = channel;
+		}
+
+		private synchronized void accepted() {
+			pending++;
+		}
+
+		/**
+		 * Informa que um boleto do segmento foi gravado na base; o segmento e
+		 * apagado quando estiver fechado e sem boletos pendentes
+		 * 
+		 * @throws IOException
+		 */
+		public synchronized void committed() throws IOException {
+			pending--;
+			deleteIfDone();
+		}
+
+		private synchronized void close() throws IOException {
+			channel.close();
+			closed = true;
+			deleteIfDone();
+		}
+
+		private void deleteIfDone() throws IOException {
+			if (closed && pending == 0)
+				Files.deleteIfExists(path);
+		}
+
+	}
+
+}
@@ -0,0 +1,82 @@
+package bankslips.data.dto;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Resultado da criacao de um boleto enviado em lote
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BankSlipBatchResultDTO implements Serializable {
+
+	private static final long serialVersionUID = -3129384707725113526L;
+
+	private int index;
+	private int status;
+	private UUID id;
+	private String message;
+
+	public BankSlipBatchResultDTO() {
+
+	}
+
+	/**
+	 * Construtor com o resultado de um item do lote
+	 * 
+	 * @param index
+	 *            posicao do boleto no lote
+	 * @param status
+	 *            status HTTP equivalente a criacao individual
+	 * @param id
+	 * @param message
+	 */
+	public BankSlipBatchResultDTO(int index, int status, UUID id, String message) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.message = message;
+	}
+
+	@JsonProperty("index")
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	@JsonProperty("status")
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	@JsonProperty("id")
+	public UUID getId() {
+		return id;
+	}
+
+	public void setId(UUID id) {
+		this.id = id;
+	}
+
+	@JsonProperty("message")
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+}
@@ -0,0 +1,159 @@
+package bankslips.data.dto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+/**
+ * Formato binario (CBOR) do BankSlipDTO, para consumidores internos que lem
+ * boletos em grande volume
+ *
+ * Cada boleto e um array CBOR de tamanho fixo, sem os nomes das propriedades:
+ *
+ * <pre>
+ * [id (16 bytes), vencimento (dias desde 1970-01-01), valor em centavos,
+ *  cliente, status (BankSlipStatusEnum.getCode()), multa]
+ * </pre>
+ *
+ * Campos ausentes sao escritos como null. O modulo deve ser registrado apenas
+ * no ObjectMapper CBOR; o JSON continua com o formato do BankSlipDTOSerializer.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipCborModule extends SimpleModule {
+
+	private static final long serialVersionUID = 2371785606839437064L;
+
+	private static final int FIELDS = 6;
+
+	public BankSlipCborModule() {
+		super(BankSlipCborModule.class.getSimpleName());
+
+		// o mixin substitui o @JsonSerialize do BankSlipDTO
+		setMixInAnnotation(BankSlipDTO.class, CborMixIn.class);
+	}
+
+	@JsonSerialize(using = Serializer.class)
+	@JsonDeserialize(using = Deserializer.class)
+	private interface CborMixIn {
+	}
+
+	public static class Serializer extends StdSerializer<BankSlipDTO> {
+
+		private static final long serialVersionUID = 1981637405914716498L;
+
+		public Serializer() {
+			super(BankSlipDTO.class);
+		}
+
+		@Override
+		public void serialize(BankSlipDTO bankSlipDTO, JsonGenerator gen, SerializerProvider provider)
+				throws IOException {
+			gen.writeStartArray(bankSlipDTO, FIELDS);
+
+			UUID id = bankSlipDTO.getId();
+			if (id == null) {
+				gen.writeNull();
+			} else {
+				byte[] bytes = ByteBuffer.allocate(16) //
+						.putLong(id.getMostSignificantBits()) //
+						.putLong(id.getLeastSignificantBits()) //
+						.array();
+				gen.writeBinary(bytes);
+			}
+
+			if (bankSlipDTO.getDueDate() == null) {
+				gen.writeNull();
+			} else {
+				try {
+					gen.writeNumber(DateCodec.parseEpochDay(bankSlipDTO.getDueDate()));
+				} catch (ParseException e) {
+					provider.reportMappingProblem(e, "Invalid due date: %s", bankSlipDTO.getDueDate());
+				}
+			}
+
+			writeNumber(gen, bankSlipDTO.getTotalInCents());
+			gen.writeString(bankSlipDTO.getCustomer());
+			gen.writeNumber(bankSlipDTO.getStatus().getCode());
+			writeNumber(gen, bankSlipDTO.getFine());
+
+			gen.writeEndArray();
+		}
+
+		private static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+			if (value == null)
+				gen.writeNull();
+			else
+				gen.writeNumber(value.longValue());
+		}
+
+	}
+
+	public static class Deserializer extends StdDeserializer<BankSlipDTO> {
+
+		private static final long serialVersionUID = -6420283960066826347L;
+
+		public Deserializer() {
+			super(BankSlipDTO.class);
+		}
+
+		@Override
+		public BankSlipDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if (!p.isExpectedStartArrayToken())
+				return (BankSlipDTO) ctxt.handleUnexpectedToken(BankSlipDTO.class, p);
+
+			BankSlipDTO bankSlipDTO = new BankSlipDTO();
+
+			if (p.nextToken() != JsonToken.VALUE_NULL) {
+				ByteBuffer id = ByteBuffer.wrap(p.getBinaryValue());
+				if (id.remaining() != 16)
+					return ctxt.reportInputMismatch(this, "Bank slip id must have 16 bytes");
+				bankSlipDTO.setId(new UUID(id.getLong(), id.getLong()));
+			}
+
+			if (p.nextToken() != JsonToken.VALUE_NULL)
+				bankSlipDTO.setDueDate(DateCodec.format(p.getLongValue()));
+
+			if (p.nextToken() != JsonToken.VALUE_NULL)
+				bankSlipDTO.setTotalInCents(p.getLongValue());
+
+			if (p.nextToken() != JsonToken.VALUE_NULL)
+				bankSlipDTO.setCustomer(p.getText());
+
+			if (p.nextToken() != JsonToken.VALUE_NULL) {
+				try {
+					bankSlipDTO.setStatus(BankSlipStatusEnum.fromCode(p.getIntValue()));
+				} catch (IllegalArgumentException e) {
+					return ctxt.reportInputMismatch(this, e.getMessage());
+				}
+			}
+
+			if (p.nextToken() != JsonToken.VALUE_NULL)
+				bankSlipDTO.setFine(p.getLongValue());
+
+			if (p.nextToken() != JsonToken.END_ARRAY)
+				ctxt.reportWrongTokenException(BankSlipDTO.class, JsonToken.END_ARRAY,
+						"Bank slip must have " + FIELDS + " fields");
+
+			return bankSlipDTO;
+		}
+
+	}
+
+}
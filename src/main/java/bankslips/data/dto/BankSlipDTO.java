@@ -1,35 +1,30 @@
 package bankslips.data.dto;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import bankslips.data.BankSlip;
+import bankslips.data.FineCalculator;
 import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
 
+@JsonSerialize(using = BankSlipDTOSerializer.class)
 public class BankSlipDTO implements Serializable {
 
 	private static final long serialVersionUID = 5036471260579734949L;
 
-	public static final DateFormat DEFAULT_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
-
-	private static final int LIMIT_TO_INCREASE_FINE = 10;
-
 	private UUID id;
 	private String dueDate;
-	private Integer totalInCents;
+	private Long totalInCents;
 	private String customer;
 	private BankSlipStatusEnum status;
-	private Integer fine;
+	private Long fine;
 
 	public BankSlipDTO() {
 
@@ -43,7 +38,7 @@ public class BankSlipDTO implements Serializable {
 	 * @param customer
 	 * @param status
 	 */
-	public BankSlipDTO(String dueDate, Integer totalInCents, String customer, BankSlipStatusEnum status) {
+	public BankSlipDTO(String dueDate, long totalInCents, String customer, BankSlipStatusEnum status) {
 		this.dueDate = dueDate;
 		this.totalInCents = totalInCents;
 		this.customer = customer;
@@ -58,10 +53,14 @@ public class BankSlipDTO implements Serializable {
 	public BankSlipDTO(BankSlip bankSlip) {
 		if (bankSlip != null) {
 			this.id = bankSlip.getId();
-			this.dueDate = DEFAULT_DATE_FORMAT.format(bankSlip.getDueDate());
+			this.dueDate = DateCodec.format(bankSlip.getDueDate());
 			this.totalInCents = bankSlip.getTotalInCents();
 			this.customer = bankSlip.getCustomer();
-			this.status = BankSlipStatusEnum.valueOf(bankSlip.getStatus());
+			this.status = bankSlip.getStatus();
+
+			// multa gravada pela varredura diaria dos boletos atrasados
+			if (status == BankSlipStatusEnum.PENDING && bankSlip.getFineTier() != FineCalculator.TIER_NONE)
+				this.fine = bankSlip.getFine();
 		}
 	}
 
@@ -77,10 +76,10 @@ public class BankSlipDTO implements Serializable {
 		if (id != null)
 			bankSlip.setId(id);
 
-		bankSlip.setDueDate(DEFAULT_DATE_FORMAT.parse(dueDate));
+		bankSlip.setDueDate(DateCodec.parse(dueDate));
 		bankSlip.setTotalInCents(totalInCents);
 		bankSlip.setCustomer(customer);
-		bankSlip.setStatus(getStatus().name());
+		bankSlip.setStatus(getStatus());
 
 		return bankSlip;
 	}
@@ -90,29 +89,30 @@ public class BankSlipDTO implements Serializable {
 	 * <br>
 	 * - Até 10 dias: Multa de 0,5% (Juros Simples) <br>
 	 * - Acima de 10 dias: Multa de 1% (Juros Simples)
+	 * 
+	 * @param fineCalculator
 	 */
-	public void verifyOverDueAndUpdateFine() {
+	public void verifyOverDueAndUpdateFine(FineCalculator fineCalculator) {
 		// verifica apenas boletos que nao estao pendentes
-		if (status.equals(BankSlipStatusEnum.PENDING)) {
-			try {
-				Date dueDate = DEFAULT_DATE_FORMAT.parse(this.dueDate);
-				Date today = DEFAULT_DATE_FORMAT.parse(DEFAULT_DATE_FORMAT.format(new Date()));
-
-				long diff = today.getTime() - dueDate.getTime();
-				long overDueDays = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-
-				if (overDueDays > 0) {
-					BigDecimal tax = new BigDecimal(0.005);
-					if (overDueDays > LIMIT_TO_INCREASE_FINE) {
-						tax = new BigDecimal(0.01);
-					}
-
-					this.fine = new BigDecimal(this.totalInCents).multiply(tax).toBigInteger().intValue();
-				}
-
-			} catch (ParseException e) {
-				this.fine = null;
-			}
+		if (getStatus() == BankSlipStatusEnum.PENDING)
+			updateFine(fineCalculator);
+	}
+
+	/**
+	 * Calcula a multa do boleto atrasado independente do status: a resposta do
+	 * pagamento e do cancelamento traz a multa do boleto ainda pendente
+	 * 
+	 * @param fineCalculator
+	 */
+	public void updateFine(FineCalculator fineCalculator) {
+		try {
+			int tier = fineCalculator.tier(DateCodec.parseEpochDay(this.dueDate));
+
+			if (tier != FineCalculator.TIER_NONE)
+				this.fine = fineCalculator.fine(this.totalInCents, tier);
+
+		} catch (ParseException e) {
+			this.fine = null;
 		}
 	}
 
@@ -134,11 +134,11 @@ public class BankSlipDTO implements Serializable {
 	}
 
 	@JsonProperty("total_in_cents")
-	public Integer getTotalInCents() {
+	public Long getTotalInCents() {
 		return totalInCents;
 	}
 
-	public void setTotalInCents(Integer totalInCents) {
+	public void setTotalInCents(Long totalInCents) {
 		this.totalInCents = totalInCents;
 	}
 
@@ -151,11 +151,14 @@ public class BankSlipDTO implements Serializable {
 		this.customer = customer;
 	}
 
+	/**
+	 * Status informado ou PENDING, caso nao tenha sido informado
+	 * 
+	 * @return
+	 */
 	@JsonProperty("status")
 	public BankSlipStatusEnum getStatus() {
-		if (status == null)
-			status = BankSlipStatusEnum.PENDING;
-		return status;
+		return status == null ? BankSlipStatusEnum.PENDING : status;
 	}
 
 	public void setStatus(BankSlipStatusEnum status) {
@@ -164,11 +167,11 @@ public class BankSlipDTO implements Serializable {
 
 	@JsonProperty("fine")
 	@JsonInclude(JsonInclude.Include.NON_NULL)
-	public Integer getFine() {
+	public Long getFine() {
 		return fine;
 	}
 
-	public void setFine(Integer fine) {
+	public void setFine(Long fine) {
 		this.fine = fine;
 	}
 
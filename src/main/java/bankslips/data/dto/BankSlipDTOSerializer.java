@@ -0,0 +1,120 @@
+package bankslips.data.dto;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Serializacao JSON do BankSlipDTO sem introspeccao de getters
+ *
+ * Os campos sao escritos diretamente no JsonGenerator, com os nomes das
+ * propriedades e os valores do status ja codificados (SerializedString); o id
+ * e formatado em um char[36] local, sem a String intermediaria (um buffer por
+ * thread seria recriado a cada requisicao com threads virtuais). O formato e o
+ * mesmo da serializacao padrao: campos nulos escritos como null, exceto a
+ * multa, que e omitida.
+ *
+ * Listas de boletos continuam sendo escritas elemento a elemento no
+ * JsonGenerator, sem representacao intermediaria.
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public class BankSlipDTOSerializer extends StdSerializer<BankSlipDTO> {
+
+	private static final long serialVersionUID = -2690328713262145734L;
+
+	private static final SerializedString ID = new SerializedString("id");
+	private static final SerializedString DUE_DATE = new SerializedString("due_date");
+	private static final SerializedString TOTAL_IN_CENTS = new SerializedString("total_in_cents");
+	private static final SerializedString CUSTOMER = new SerializedString("customer");
+	private static final SerializedString STATUS = new SerializedString("status");
+	private static final SerializedString FINE = new SerializedString("fine");
+
+	/**
+	 * Valores do status, indexados pelo ordinal
+	 */
+	private static final SerializedString[] STATUS_VALUES;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	static {
+		BankSlipStatusEnum[] statuses = BankSlipStatusEnum.values();
+		STATUS_VALUES = new SerializedString[statuses.length];
+		for (BankSlipStatusEnum status : statuses)
+			STATUS_VALUES[status.ordinal()] = new SerializedString(status.name());
+	}
+
+	public BankSlipDTOSerializer() {
+		super(BankSlipDTO.class);
+	}
+
+	@Override
+	public void serialize(BankSlipDTO bankSlipDTO, JsonGenerator gen, SerializerProvider provider)
+			throws IOException {
+		gen.writeStartObject(bankSlipDTO);
+
+		gen.writeFieldName(ID);
+		UUID id = bankSlipDTO.getId();
+		if (id == null)
+			gen.writeNull();
+		else
+			writeUUID(id, gen);
+
+		gen.writeFieldName(DUE_DATE);
+		gen.writeString(bankSlipDTO.getDueDate());
+
+		gen.writeFieldName(TOTAL_IN_CENTS);
+		Long totalInCents = bankSlipDTO.getTotalInCents();
+		if (totalInCents == null)
+			gen.writeNull();
+		else
+			gen.writeNumber(totalInCents.longValue());
+
+		gen.writeFieldName(CUSTOMER);
+		gen.writeString(bankSlipDTO.getCustomer());
+
+		gen.writeFieldName(STATUS);
+		gen.writeString(STATUS_VALUES[bankSlipDTO.getStatus().ordinal()]);
+
+		Long fine = bankSlipDTO.getFine();
+		if (fine != null) {
+			gen.writeFieldName(FINE);
+			gen.writeNumber(fine.longValue());
+		}
+
+		gen.writeEndObject();
+	}
+
+	private static void writeUUID(UUID id, JsonGenerator gen) throws IOException {
+		char[] chars = new char[36];
+		long msb = id.getMostSignificantBits();
+		long lsb = id.getLeastSignificantBits();
+
+		hex(msb >>> 32, chars, 0, 8);
+		chars[8] = '-';
+		hex(msb >>> 16, chars, 9, 4);
+		chars[13] = '-';
+		hex(msb, chars, 14, 4);
+		chars[18] = '-';
+		hex(lsb >>> 48, chars, 19, 4);
+		chars[23] = '-';
+		hex(lsb, chars, 24, 12);
+
+		gen.writeString(chars, 0, chars.length);
+	}
+
+	private static void hex(long value, char[] chars, int offset, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			chars[i] = HEX[(int) value & 0xF];
+			value >>>= 4;
+		}
+	}
+
+}
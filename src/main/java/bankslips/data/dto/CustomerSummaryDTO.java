@@ -0,0 +1,103 @@
+package bankslips.data.dto;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import bankslips.data.CustomerSummary;
+
+public class CustomerSummaryDTO implements Serializable {
+
+	private static final long serialVersionUID = 3902372846178730512L;
+
+	private String customer;
+	private long pendingCount;
+	private long pendingInCents;
+	private long paidCount;
+	private long paidInCents;
+	private long canceledCount;
+	private long canceledInCents;
+
+	public CustomerSummaryDTO() {
+
+	}
+
+	/**
+	 * Constructor baseado na Entity
+	 * 
+	 * @param customerSummary
+	 */
+	public CustomerSummaryDTO(CustomerSummary customerSummary) {
+		this.customer = customerSummary.getCustomer();
+		this.pendingCount = customerSummary.getPendingCount();
+		this.pendingInCents = customerSummary.getPendingInCents();
+		this.paidCount = customerSummary.getPaidCount();
+		this.paidInCents = customerSummary.getPaidInCents();
+		this.canceledCount = customerSummary.getCanceledCount();
+		this.canceledInCents = customerSummary.getCanceledInCents();
+	}
+
+	@JsonProperty("customer")
+	public String getCustomer() {
+		return customer;
+	}
+
+	public void setCustomer(String customer) {
+		this.customer = customer;
+	}
+
+	@JsonProperty("pending_count")
+	public long getPendingCount() {
+		return pendingCount;
+	}
+
+	public void setPendingCount(long pendingCount) {
+		this.pendingCount = pendingCount;
+	}
+
+	@JsonProperty("pending_in_cents")
+	public long getPendingInCents() {
+		return pendingInCents;
+	}
+
+	public void setPendingInCents(long pendingInCents) {
+		this.pendingInCents = pendingInCents;
+	}
+
+	@JsonProperty("paid_count")
+	public long getPaidCount() {
+		return paidCount;
+	}
+
+	public void setPaidCount(long paidCount) {
+		this.paidCount = paidCount;
+	}
+
+	@JsonProperty("paid_in_cents")
+	public long getPaidInCents() {
+		return paidInCents;
+	}
+
+	public void setPaidInCents(long paidInCents) {
+		this.paidInCents = paidInCents;
+	}
+
+	@JsonProperty("canceled_count")
+	public long getCanceledCount() {
+		return canceledCount;
+	}
+
+	public void setCanceledCount(long canceledCount) {
+		this.canceledCount = canceledCount;
+	}
+
+	@JsonProperty("canceled_in_cents")
+	public long getCanceledInCents() {
+		return canceledInCents;
+	}
+
+	public void setCanceledInCents(long canceledInCents) {
+		this.canceledInCents = canceledInCents;
+	}
+
+}
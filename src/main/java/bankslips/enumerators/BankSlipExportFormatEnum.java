@@ -0,0 +1,15 @@
+package bankslips.enumerators;
+
+public enum BankSlipExportFormatEnum {
+	NDJSON("application/x-ndjson"), CSV("text/csv");
+
+	private final String contentType;
+
+	private BankSlipExportFormatEnum(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+}
@@ -1,5 +1,26 @@
 package bankslips.enumerators;
 
 public enum BankSlipStatusEnum {
-	PENDING, PAID, CANCELED;
+	PENDING(0), PAID(1), CANCELED(2);
+
+	/**
+	 * Codigo gravado na base (nao depende da ordem das constantes)
+	 */
+	private final int code;
+
+	private BankSlipStatusEnum(int code) {
+		this.code = code;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public static BankSlipStatusEnum fromCode(int code) {
+		for (BankSlipStatusEnum status : values()) {
+			if (status.code == code)
+				return status;
+		}
+		throw new IllegalArgumentException("Invalid bankslip status code: " + code);
+	}
 }
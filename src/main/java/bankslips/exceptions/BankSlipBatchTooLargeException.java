@@ -0,0 +1,14 @@
+package bankslips.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PAYLOAD_TOO_LARGE)
+public class BankSlipBatchTooLargeException extends RuntimeException {
+
+	private static final long serialVersionUID = 6675121348226509781L;
+
+	public BankSlipBatchTooLargeException(int maxSize) {
+		super("Too many bankslips provided - a batch must have at most " + maxSize + " bankslips");
+	}
+}
@@ -0,0 +1,14 @@
+package bankslips.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.UNPROCESSABLE_ENTITY)
+public class BankSlipIdempotencyKeyReuseException extends RuntimeException {
+
+	private static final long serialVersionUID = 2209131742415958474L;
+
+	public BankSlipIdempotencyKeyReuseException() {
+		super("Idempotency-Key already used with a different request");
+	}
+}
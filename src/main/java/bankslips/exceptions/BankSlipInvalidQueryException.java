@@ -0,0 +1,15 @@
+package bankslips.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class BankSlipInvalidQueryException extends RuntimeException {
+
+	private static final long serialVersionUID = 4310287452836013941L;
+
+	public BankSlipInvalidQueryException() {
+		super("Invalid query parameters provided.The possible reasons are:"
+				+ " An invalid status, date, cursor, page size or customer was informed");
+	}
+}
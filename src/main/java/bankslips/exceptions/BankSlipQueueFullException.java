@@ -0,0 +1,14 @@
+package bankslips.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.TOO_MANY_REQUESTS)
+public class BankSlipQueueFullException extends RuntimeException {
+
+	private static final long serialVersionUID = -3529416907412584727L;
+
+	public BankSlipQueueFullException() {
+		super("Too many bankslips waiting to be saved - try again later");
+	}
+}
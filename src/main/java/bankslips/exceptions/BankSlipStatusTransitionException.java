@@ -0,0 +1,17 @@
+package bankslips.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import bankslips.enumerators.BankSlipStatusEnum;
+
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class BankSlipStatusTransitionException extends RuntimeException {
+
+	private static final long serialVersionUID = -4476239093015562313L;
+
+	public BankSlipStatusTransitionException(BankSlipStatusEnum from, BankSlipStatusEnum to) {
+		super("Bankslip status can't be changed from " + from + " to " + to
+				+ " - only pending bankslips can be paid or canceled");
+	}
+}
@@ -0,0 +1,187 @@
+package bankslips.utils;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+
+/**
+ * Conversao de datas no formato yyyy-MM-dd
+ * 
+ * Substitui o uso de SimpleDateFormat (que nao e thread-safe e aloca um
+ * Calendar a cada chamada): a data e representada internamente pelo numero de
+ * dias desde 1970-01-01 (epoch day) e a conversao de/para texto e feita sem
+ * regex, sem Calendar e sem estado compartilhado, podendo ser utilizada
+ * simultaneamente por qualquer numero de threads.
+ * 
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+public final class DateCodec {
+
+	public static final String PATTERN = "yyyy-MM-dd";
+
+	private static final int LENGTH = PATTERN.length();
+
+	/**
+	 * Dias entre 0000-01-01 e 1970-01-01
+	 */
+	private static final long DAYS_0000_TO_1970 = 719528L;
+
+	/**
+	 * Dias em um ciclo de 400 anos
+	 */
+	private static final long DAYS_PER_CYCLE = 146097L;
+
+	private DateCodec() {
+
+	}
+
+	/**
+	 * Converte o texto yyyy-MM-dd para o numero de dias desde 1970-01-01
+	 * 
+	 * @param text
+	 * @return
+	 * @throws ParseException
+	 *             caso o texto nao seja uma data valida no formato yyyy-MM-dd
+	 */
+	public static long parseEpochDay(CharSequence text) throws ParseException {
+		if (text == null || text.length() != LENGTH)
+			throw unparseable(text, 0);
+
+		int year = parseDigits(text, 0, 4);
+		if (text.charAt(4) != '-')
+			throw unparseable(text, 4);
+
+		int month = parseDigits(text, 5, 2);
+		if (text.charAt(7) != '-')
+			throw unparseable(text, 7);
+
+		int day = parseDigits(text, 8, 2);
+
+		if (month < 1 || month > 12)
+			throw unparseable(text, 5);
+
+		if (day < 1 || day > lengthOfMonth(year, month))
+			throw unparseable(text, 8);
+
+		return toEpochDay(year, month, day);
+	}
+
+	/**
+	 * Converte o texto yyyy-MM-dd para LocalDate
+	 * 
+	 * @param text
+	 * @return
+	 * @throws ParseException
+	 *             caso o texto nao seja uma data valida no formato yyyy-MM-dd
+	 */
+	public static LocalDate parse(CharSequence text) throws ParseException {
+		return LocalDate.ofEpochDay(parseEpochDay(text));
+	}
+
+	/**
+	 * Formata o numero de dias desde 1970-01-01 como yyyy-MM-dd
+	 * 
+	 * @param epochDay
+	 * @return
+	 */
+	public static String format(long epochDay) {
+		// algoritmo equivalente a LocalDate.ofEpochDay, considerando anos
+		// iniciando em marco para simplificar o tratamento de anos bissextos
+		long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+		long adjust = 0;
+		if (zeroDay < 0) {
+			long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+			adjust = adjustCycles * 400;
+			zeroDay += -adjustCycles * DAYS_PER_CYCLE;
+		}
+
+		long year = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+		long dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+		if (dayOfYear < 0) {
+			year--;
+			dayOfYear = zeroDay - (365 * year + year / 4 - year / 100 + year / 400);
+		}
+		year += adjust;
+
+		int marchDayOfYear = (int) dayOfYear;
+		int marchMonth = (marchDayOfYear * 5 + 2) / 153;
+		int month = (marchMonth + 2) % 12 + 1;
+		int day = marchDayOfYear - (marchMonth * 306 + 5) / 10 + 1;
+		year += marchMonth / 10;
+
+		if (year < 0 || year > 9999)
+			throw new IllegalArgumentException("Year out of range [0000, 9999]: " + year);
+
+		char[] chars = new char[LENGTH];
+		writeDigits(chars, 0, 4, (int) year);
+		chars[4] = '-';
+		writeDigits(chars, 5, 2, month);
+		chars[7] = '-';
+		writeDigits(chars, 8, 2, day);
+
+		return new String(chars);
+	}
+
+	/**
+	 * Formata a data como yyyy-MM-dd
+	 * 
+	 * @param date
+	 * @return
+	 */
+	public static String format(LocalDate date) {
+		return format(date.toEpochDay());
+	}
+
+	private static long toEpochDay(int year, int month, int day) {
+		long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+		total += (367 * month - 362) / 12;
+		total += day - 1;
+		if (month > 2) {
+			total--;
+			if (!isLeapYear(year))
+				total--;
+		}
+		return total - DAYS_0000_TO_1970;
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	private static int parseDigits(CharSequence text, int offset, int length) throws ParseException {
+		int value = 0;
+		for (int i = offset; i < offset + length; i++) {
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				throw unparseable(text, i);
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static void writeDigits(char[] chars, int offset, int length, int value) {
+		for (int i = offset + length - 1; i >= offset; i--) {
+			chars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static ParseException unparseable(CharSequence text, int errorOffset) {
+		return new ParseException("Unparseable date: \"" + text + "\"", errorOffset);
+	}
+
+}
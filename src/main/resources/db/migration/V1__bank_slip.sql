@@ -0,0 +1,10 @@
+-- layout original, gerado pelo Hibernate a partir da entidade BankSlip
+create table bank_slip (
+	id binary(255) not null,
+	customer varchar(255),
+	due_date timestamp,
+	status varchar(255),
+	total_in_cents integer,
+	version bigint,
+	primary key (id)
+);
@@ -0,0 +1,21 @@
+-- layout compacto: id em 16 bytes, vencimento como data, valor em bigint e
+-- status como codigo de um byte (ver BankSlipStatusEnum)
+create table bank_slip_compact (
+	id binary(16) not null,
+	due_date date not null,
+	total_in_cents bigint not null,
+	customer varchar(255) not null,
+	status tinyint not null,
+	version bigint default 0 not null,
+	primary key (id)
+);
+
+insert into bank_slip_compact (id, due_date, total_in_cents, customer, status, version)
+select id, cast(due_date as date), total_in_cents, customer,
+	case status when 'PENDING' then 0 when 'PAID' then 1 when 'CANCELED' then 2 end,
+	coalesce(version, 0)
+from bank_slip;
+
+drop table bank_slip;
+
+alter table bank_slip_compact rename to bank_slip;
@@ -0,0 +1,4 @@
+-- indices das listagens filtradas por status ou cliente e ordenadas por
+-- vencimento (o id completa a chave da paginacao)
+create index idx_bank_slip_status_due_date on bank_slip (status, due_date, id);
+create index idx_bank_slip_customer_due_date on bank_slip (customer, due_date, id);
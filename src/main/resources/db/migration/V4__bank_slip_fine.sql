@@ -0,0 +1,18 @@
+-- multa dos boletos atrasados, gravada pela varredura diaria
+-- (OverdueSweepService); o indice leva diretamente aos boletos pendentes
+-- cuja faixa de multa ainda nao foi atualizada
+alter table bank_slip add column fine bigint default 0 not null;
+alter table bank_slip add column fine_tier tinyint default 0 not null;
+
+create index idx_bank_slip_fine_tier_status_due_date on bank_slip (fine_tier, status, due_date, id);
+
+-- posicao da ultima varredura, para continuar apos um reinicio
+create table overdue_sweep_checkpoint (
+	id integer not null,
+	sweep_date date not null,
+	fine_tier tinyint not null,
+	last_due_date date,
+	last_id binary(16),
+	completed boolean not null,
+	primary key (id)
+);
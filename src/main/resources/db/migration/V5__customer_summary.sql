@@ -0,0 +1,21 @@
+-- totais por cliente e status, atualizados na mesma transacao que cria ou
+-- altera o status dos boletos (CustomerSummaryService)
+create table customer_summary (
+	customer varchar(255) not null,
+	pending_count bigint default 0 not null,
+	pending_in_cents bigint default 0 not null,
+	paid_count bigint default 0 not null,
+	paid_in_cents bigint default 0 not null,
+	canceled_count bigint default 0 not null,
+	canceled_in_cents bigint default 0 not null,
+	primary key (customer)
+);
+
+insert into customer_summary (customer, pending_count, pending_in_cents, paid_count, paid_in_cents,
+	canceled_count, canceled_in_cents)
+select customer,
+	sum(case status when 0 then 1 else 0 end), sum(case status when 0 then total_in_cents else 0 end),
+	sum(case status when 1 then 1 else 0 end), sum(case status when 1 then total_in_cents else 0 end),
+	sum(case status when 2 then 1 else 0 end), sum(case status when 2 then total_in_cents else 0 end)
+from bank_slip
+group by customer;
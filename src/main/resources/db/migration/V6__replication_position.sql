@@ -0,0 +1,10 @@
+-- posicao de replicacao: incrementada no commit de cada transacao de escrita
+-- quando ha replicas de leitura (ReplicationPositionListener); uma replica com
+-- posicao maior ou igual a de uma escrita ja recebeu essa escrita
+create table replication_position (
+	id int not null,
+	position bigint default 0 not null,
+	primary key (id)
+);
+
+insert into replication_position (id, position) values (1, 0);
@@ -1,32 +1,40 @@
 package bankslip;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.text.ParseException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -35,21 +43,35 @@ import org.springframework.mock.http.MockHttpOutputMessage;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.context.WebApplicationContext;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jayway.jsonpath.JsonPath;
+
 import bankslips.Application;
+import bankslips.controllers.BankSlipController;
+import bankslips.controllers.BankSlipExceptionMetrics;
+import bankslips.controllers.BankSlipRequestHandler;
 import bankslips.data.BankSlip;
 import bankslips.data.BankSlipRepository;
+import bankslips.data.BankSlipService;
+import bankslips.data.CustomerSummaryRepository;
+import bankslips.data.IdempotencyKeyStore;
+import bankslips.data.dto.BankSlipCborModule;
 import bankslips.data.dto.BankSlipDTO;
 import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = Application.class)
+@AutoConfigureObservability
 @WebAppConfiguration
 public class BankSlipControllerTest {
 
-	private MediaType contentType = new MediaType(MediaType.APPLICATION_JSON.getType(),
-			MediaType.APPLICATION_JSON.getSubtype(), Charset.forName("utf8"));
+	private MediaType contentType = MediaType.APPLICATION_JSON;
 
 	private static final String REQUEST_MAPPING = "/rest/bankslips/";
 
@@ -70,6 +92,15 @@ public class BankSlipControllerTest {
 	@Autowired
 	private BankSlipRepository bankSlipRepository;
 
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
 	@Autowired
 	void setConverters(HttpMessageConverter<?>[] converters) {
 
@@ -85,6 +116,7 @@ public class BankSlipControllerTest {
 		this.mockMvc = webAppContextSetup(webApplicationContext).build();
 
 		this.bankSlipRepository.deleteAll();
+		this.customerSummaryRepository.deleteAll();
 
 		bankSlipSetup = new BankSlipDTO("2018-05-10", 100000, "Conta Azul", BankSlipStatusEnum.PENDING);
 		bankSlipOverDue = new BankSlipDTO(getDateBefore(5), 100000, "Overdue 5 days", BankSlipStatusEnum.PENDING);
@@ -116,9 +148,7 @@ public class BankSlipControllerTest {
 	 * @return
 	 */
 	private String getDateBefore(int days) {
-		Date d = new Date();// intialize your date to any date
-		Date dateBefore = new Date(d.getTime() - (days * 24 * 3600 * 1000)); // Subtract n days
-		return BankSlipDTO.DEFAULT_DATE_FORMAT.format(dateBefore);
+		return DateCodec.format(LocalDate.now().minusDays(days));
 	}
 
 	@Test
@@ -129,6 +159,71 @@ public class BankSlipControllerTest {
 				.andExpect(jsonPath("$", hasSize(bankSlipList.size())));
 	}
 
+	@Test
+	public void findAllBankSlipsPaginated() throws Exception {
+
+		// first page
+		MvcResult firstPage = mockMvc.perform(get(REQUEST_MAPPING).param("limit", "2")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(2))) //
+				.andExpect(jsonPath("$[0].id", is(bankSlipSetup.getId().toString()))) //
+				.andExpect(jsonPath("$[1].id", is(bankSlipOverDueGt10.getId().toString()))) //
+				.andReturn();
+
+		String cursor = firstPage.getResponse().getHeader(BankSlipController.NEXT_CURSOR_HEADER);
+		assertNotNull("the next cursor must not be null", cursor);
+
+		// last page
+		mockMvc.perform(get(REQUEST_MAPPING).param("limit", "2").param("cursor", cursor)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(1))) //
+				.andExpect(jsonPath("$[0].id", is(bankSlipOverDue.getId().toString()))) //
+				.andExpect(header().doesNotExist(BankSlipController.NEXT_CURSOR_HEADER));
+
+		// filters
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Overdue 5 days").param("status", "PENDING")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(1))) //
+				.andExpect(jsonPath("$[0].id", is(bankSlipOverDue.getId().toString())));
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("due_date_to", "2018-05-10")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(1)));
+
+		// invalid parameters
+		mockMvc.perform(get(REQUEST_MAPPING).param("cursor", "its_not_a_cursor")) //
+				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("limit", "0")) //
+				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+	}
+
+	@Test
+	public void exportBankSlips() throws Exception {
+
+		// ndjson (default)
+		String ndjson = mockMvc.perform(get(REQUEST_MAPPING + "export")) //
+				.andExpect(status().isOk()) //
+				.andExpect(content().contentType("application/x-ndjson;charset=UTF-8")) //
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(bankSlipList.size(), ndjson.split("\n").length);
+		assertTrue(ndjson.contains("\"id\":\"" + bankSlipSetup.getId() + "\""));
+
+		// csv
+		String csv = mockMvc.perform(get(REQUEST_MAPPING + "export").param("format", "csv")) //
+				.andExpect(status().isOk()) //
+				.andExpect(content().contentType("text/csv;charset=UTF-8")) //
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals(bankSlipList.size() + 1, csv.split("\n").length);
+		assertTrue(csv.contains(bankSlipSetup.getId() + ",2018-05-10,100000,Conta Azul,PENDING"));
+
+		// invalid format
+		mockMvc.perform(get(REQUEST_MAPPING + "export").param("format", "xml")) //
+				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+	}
+
 	@Test
 	public void getBankSlipById() throws Exception {
 
@@ -137,6 +232,12 @@ public class BankSlipControllerTest {
 				.andExpect(status().isOk()) //
 				.andExpect(content().contentType(contentType));
 
+		// cached by id
+		assertNotNull(cacheManager.getCache(BankSlipRepository.CACHE_NAME).get(bankSlipSetup.getId()));
+
+		mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "name:" + BankSlipRepository.CACHE_NAME)) //
+				.andExpect(status().isOk());
+
 		// id not found
 		mockMvc.perform(get(REQUEST_MAPPING + new UUID(10, 10))) //
 				.andExpect(status().is(HttpStatus.NOT_FOUND.value()));
@@ -159,13 +260,97 @@ public class BankSlipControllerTest {
 
 	}
 
+	@Test
+	public void conditionalRequests() throws Exception {
+		String id = bankSlipSetup.getId().toString();
+
+		// strong etag on details
+		String eTag = mockMvc.perform(get(REQUEST_MAPPING + id)) //
+				.andExpect(status().isOk()) //
+				.andExpect(header().exists("ETag")) //
+				.andReturn().getResponse().getHeader("ETag");
+
+		assertTrue(eTag.startsWith("\""));
+
+		// not modified: no body
+		String body = mockMvc.perform(get(REQUEST_MAPPING + id).header("If-None-Match", eTag)) //
+				.andExpect(status().isNotModified()) //
+				.andReturn().getResponse().getContentAsString();
+
+		assertEquals("", body);
+
+		// id not found
+		mockMvc.perform(get(REQUEST_MAPPING + new UUID(10, 10)).header("If-None-Match", eTag)) //
+				.andExpect(status().is(HttpStatus.NOT_FOUND.value()));
+
+		// etag of the page
+		String pageETag = mockMvc.perform(get(REQUEST_MAPPING)) //
+				.andExpect(status().isOk()) //
+				.andExpect(header().exists("ETag")) //
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get(REQUEST_MAPPING).header("If-None-Match", pageETag)) //
+				.andExpect(status().isNotModified());
+
+		// paying changes the version
+		mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(REQUEST_MAPPING + id).header("If-None-Match", eTag)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", is(BankSlipStatusEnum.PAID.name())));
+
+		mockMvc.perform(get(REQUEST_MAPPING).header("If-None-Match", pageETag)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(bankSlipList.size())));
+	}
+
+	@Test
+	public void metrics() throws Exception {
+		mockMvc.perform(get(REQUEST_MAPPING + bankSlipOverDue.getId())) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(REQUEST_MAPPING + new UUID(10, 10))) //
+				.andExpect(status().is(HttpStatus.NOT_FOUND.value()));
+
+		// handler, service and repository timers
+		mockMvc.perform(get("/actuator/metrics/" + BankSlipRequestHandler.METRIC).param("tag",
+				"method:getBankSlipById")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get("/actuator/metrics/" + BankSlipService.METRIC).param("tag", "method:findById")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get("/actuator/metrics/spring.data.repository.invocations").param("tag",
+				"repository:BankSlipRepository")) //
+				.andExpect(status().isOk());
+
+		// exceptions
+		mockMvc.perform(get("/actuator/metrics/" + BankSlipExceptionMetrics.METRIC).param("tag",
+				"exception:BankSlipNotFoundException")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("measurements[0].value", greaterThanOrEqualTo(1.0)));
+
+		// connection pool
+		mockMvc.perform(get("/actuator/metrics/hikaricp.connections.active")) //
+				.andExpect(status().isOk());
+
+		// prometheus text format, with histograms for p50/p99
+		mockMvc.perform(get("/actuator/prometheus")) //
+				.andExpect(status().isOk()) //
+				.andExpect(content().string(containsString("bankslips_service_seconds_bucket{"))) //
+				.andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket{")));
+	}
+
 	@Test
 	public void payBankSlip() throws Exception {
 
 		// create a bankslip
 		this.mockMvc.perform(put(REQUEST_MAPPING + bankSlipSetup.getId().toString() + "/pay") //
 				.contentType(contentType)) //
-				.andExpect(status().isOk());
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", is(BankSlipStatusEnum.PAID.name()))) //
+				.andExpect(jsonPath("fine", is((int) (bankSlipSetup.getTotalInCents() * 0.01))));
 
 		// get by id
 		mockMvc.perform(get(REQUEST_MAPPING + bankSlipSetup.getId().toString())) //
@@ -177,6 +362,18 @@ public class BankSlipControllerTest {
 		// not uuid
 		mockMvc.perform(put(REQUEST_MAPPING + "its_not_an_uuid/pay")) //
 				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+
+		// id not found
+		mockMvc.perform(put(REQUEST_MAPPING + new UUID(10, 10) + "/pay")) //
+				.andExpect(status().is(HttpStatus.NOT_FOUND.value()));
+
+		// already paid
+		mockMvc.perform(put(REQUEST_MAPPING + bankSlipSetup.getId().toString() + "/pay")) //
+				.andExpect(status().is(HttpStatus.CONFLICT.value()));
+
+		// paid bankslips can't be canceled
+		mockMvc.perform(delete(REQUEST_MAPPING + bankSlipSetup.getId().toString() + "/cancel")) //
+				.andExpect(status().is(HttpStatus.CONFLICT.value()));
 	}
 
 	@Test
@@ -185,7 +382,9 @@ public class BankSlipControllerTest {
 		// create a bankslip
 		this.mockMvc.perform(delete(REQUEST_MAPPING + bankSlipSetup.getId().toString() + "/cancel") //
 				.contentType(contentType)) //
-				.andExpect(status().isOk());
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", is(BankSlipStatusEnum.CANCELED.name()))) //
+				.andExpect(jsonPath("fine", is((int) (bankSlipSetup.getTotalInCents() * 0.01))));
 
 		// get by id
 		mockMvc.perform(get(REQUEST_MAPPING + bankSlipSetup.getId().toString())) //
@@ -199,6 +398,20 @@ public class BankSlipControllerTest {
 				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
 	}
 
+	@Test
+	public void statusUpdateEvictsCacheAfterCommit() throws Exception {
+		UUID id = bankSlipSetup.getId();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			assertEquals(1, bankSlipRepository.updateStatus(id, BankSlipStatusEnum.PENDING, BankSlipStatusEnum.PAID));
+
+			// concurrent read before the commit caches the committed (pending) bankslip
+			CompletableFuture.runAsync(() -> bankSlipRepository.findById(id)).join();
+		});
+
+		assertEquals(BankSlipStatusEnum.PAID, bankSlipRepository.findById(id).get().getStatus());
+	}
+
 	@Test
 	public void createBankSlip() throws Exception {
 
@@ -232,8 +445,240 @@ public class BankSlipControllerTest {
 
 	}
 
+	@Test
+	public void idempotentRequests() throws Exception {
+
+		BankSlipDTO bankSlipToCreate = new BankSlipDTO("2018-05-10", 100000, "Customer 1", BankSlipStatusEnum.PENDING);
+		String idempotencyKey = UUID.randomUUID().toString();
+
+		// create twice with the same key
+		String created = this.mockMvc.perform(post(REQUEST_MAPPING) //
+				.header(IdempotencyKeyStore.HEADER, idempotencyKey) //
+				.contentType(contentType) //
+				.content(json(bankSlipToCreate))) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse().getContentAsString();
+
+		this.mockMvc.perform(post(REQUEST_MAPPING) //
+				.header(IdempotencyKeyStore.HEADER, idempotencyKey) //
+				.contentType(contentType) //
+				.content(json(bankSlipToCreate))) //
+				.andExpect(status().isCreated()) //
+				.andExpect(content().string(created));
+
+		assertEquals(bankSlipList.size() + 1, bankSlipRepository.count());
+
+		// same key with another bankslip
+		bankSlipToCreate.setTotalInCents(200000L);
+		this.mockMvc.perform(post(REQUEST_MAPPING) //
+				.header(IdempotencyKeyStore.HEADER, idempotencyKey) //
+				.contentType(contentType) //
+				.content(json(bankSlipToCreate))) //
+				.andExpect(status().is(HttpStatus.UNPROCESSABLE_ENTITY.value()));
+
+		// same key with another customer whose hash code is the same ("Aa" and "BB")
+		String otherIdempotencyKey = UUID.randomUUID().toString();
+		for (String customer : Arrays.asList("Aa", "BB")) {
+			bankSlipToCreate.setCustomer(customer);
+			this.mockMvc.perform(post(REQUEST_MAPPING) //
+					.header(IdempotencyKeyStore.HEADER, otherIdempotencyKey) //
+					.contentType(contentType) //
+					.content(json(bankSlipToCreate))) //
+					.andExpect(status().is(customer.equals("Aa") ? HttpStatus.CREATED.value()
+							: HttpStatus.UNPROCESSABLE_ENTITY.value()));
+		}
+
+		// pay twice with the same key
+		for (int i = 0; i < 2; i++) {
+			this.mockMvc.perform(put(REQUEST_MAPPING + bankSlipSetup.getId().toString() + "/pay") //
+					.header(IdempotencyKeyStore.HEADER, idempotencyKey)) //
+					.andExpect(status().isOk()) //
+					.andExpect(jsonPath("status", is(BankSlipStatusEnum.PAID.name())));
+		}
+
+		assertEquals(1L, bankSlipRepository.findById(bankSlipSetup.getId()).get().getVersion());
+	}
+
+	@Test
+	public void createBankSlipsBatch() throws Exception {
+
+		List<BankSlipDTO> bankSlipsToCreate = Arrays.asList( //
+				new BankSlipDTO("2018-05-10", 100000, "Customer 1", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("XXXXX", 1000, "Error", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-10", 0, "Error", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-10", 1000, null, BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-11", 2000, "Customer 2", BankSlipStatusEnum.PENDING));
+
+		// json array
+		this.mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+				.contentType(contentType) //
+				.content(json(bankSlipsToCreate))) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(bankSlipsToCreate.size()))) //
+				.andExpect(jsonPath("$[0].status", is(HttpStatus.CREATED.value()))) //
+				.andExpect(jsonPath("$[1].status", is(HttpStatus.UNPROCESSABLE_ENTITY.value()))) //
+				.andExpect(jsonPath("$[2].status", is(HttpStatus.UNPROCESSABLE_ENTITY.value()))) //
+				.andExpect(jsonPath("$[3].status", is(HttpStatus.BAD_REQUEST.value()))) //
+				.andExpect(jsonPath("$[4].status", is(HttpStatus.CREATED.value()))) //
+				.andExpect(jsonPath("$[4].index", is(4)));
+
+		assertEquals(bankSlipList.size() + 2, bankSlipRepository.count());
+
+		// ndjson
+		StringBuilder ndjson = new StringBuilder();
+		for (BankSlipDTO bankSlipDTO : bankSlipsToCreate)
+			ndjson.append(json(bankSlipDTO)).append('\n');
+
+		this.mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+				.contentType(BankSlipController.NDJSON_VALUE) //
+				.content(ndjson.toString())) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", hasSize(bankSlipsToCreate.size()))) //
+				.andExpect(jsonPath("$[0].status", is(HttpStatus.CREATED.value()))) //
+				.andExpect(jsonPath("$[1].status", is(HttpStatus.UNPROCESSABLE_ENTITY.value())));
+
+		assertEquals(bankSlipList.size() + 4, bankSlipRepository.count());
+	}
+
+	@Test
+	public void cborFormat() throws Exception {
+		ObjectMapper cborMapper = new CBORMapper().registerModule(new BankSlipCborModule());
+
+		// get by id
+		byte[] content = mockMvc.perform(get(REQUEST_MAPPING + bankSlipSetup.getId()).accept(MediaType.APPLICATION_CBOR)) //
+				.andExpect(status().isOk()) //
+				.andExpect(content().contentType(MediaType.APPLICATION_CBOR)) //
+				.andReturn().getResponse().getContentAsByteArray();
+
+		BankSlipDTO bankSlipDTO = cborMapper.readValue(content, BankSlipDTO.class);
+		assertEquals(bankSlipSetup.getId(), bankSlipDTO.getId());
+		assertEquals(bankSlipSetup.getDueDate(), bankSlipDTO.getDueDate());
+		assertEquals(bankSlipSetup.getTotalInCents(), bankSlipDTO.getTotalInCents());
+		assertEquals(bankSlipSetup.getCustomer(), bankSlipDTO.getCustomer());
+		assertEquals(bankSlipSetup.getStatus(), bankSlipDTO.getStatus());
+
+		// smaller than json
+		int jsonLength = mockMvc.perform(get(REQUEST_MAPPING + bankSlipSetup.getId())) //
+				.andReturn().getResponse().getContentAsByteArray().length;
+		assertTrue(content.length < jsonLength);
+
+		// list
+		content = mockMvc.perform(get(REQUEST_MAPPING).accept(MediaType.APPLICATION_CBOR)) //
+				.andExpect(status().isOk()) //
+				.andReturn().getResponse().getContentAsByteArray();
+
+		BankSlipDTO[] bankSlipDTOs = cborMapper.readValue(content, BankSlipDTO[].class);
+		assertEquals(bankSlipList.size(), bankSlipDTOs.length);
+
+		// create
+		BankSlipDTO bankSlipToCreate = new BankSlipDTO("2018-05-10", 100000, "Customer CBOR", BankSlipStatusEnum.PENDING);
+		mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_CBOR) //
+				.content(cborMapper.writeValueAsBytes(bankSlipToCreate))) //
+				.andExpect(status().isCreated()) //
+				.andExpect(content().contentType(contentType));
+	}
+
+	@Test
+	public void concurrentBatchesForNewCustomers() throws Exception {
+		List<BankSlipDTO> bankSlipsToCreate = Arrays.asList( //
+				new BankSlipDTO("2018-05-10", 1000, "New Customer 1", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-10", 1000, "New Customer 2", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-10", 1000, "New Customer 3", BankSlipStatusEnum.PENDING));
+		String content = json(bankSlipsToCreate);
+
+		// os lotes criam os mesmos resumos ao mesmo tempo
+		List<CompletableFuture<Void>> batches = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+			batches.add(CompletableFuture.runAsync(() -> {
+				try {
+					this.mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+							.contentType(contentType) //
+							.content(content)) //
+							.andExpect(status().isOk()) //
+							.andExpect(jsonPath("$[*].status", everyItem(is(HttpStatus.CREATED.value()))));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}));
+		CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+
+		for (BankSlipDTO bankSlipDTO : bankSlipsToCreate)
+			mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", bankSlipDTO.getCustomer())) //
+					.andExpect(status().isOk()) //
+					.andExpect(jsonPath("pending_count", is(8))) //
+					.andExpect(jsonPath("pending_in_cents", is(8000)));
+	}
+
+	@Test
+	public void customerSummary() throws Exception {
+
+		List<BankSlipDTO> bankSlipsToCreate = Arrays.asList( //
+				new BankSlipDTO("2018-05-10", 1000, "Summary Customer", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-11", 2000, "Summary Customer", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-12", 4000, "Summary Customer", BankSlipStatusEnum.PAID), //
+				new BankSlipDTO("2018-05-12", 8000, "Another Customer", BankSlipStatusEnum.PENDING));
+
+		// batch
+		this.mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+				.contentType(contentType) //
+				.content(json(bankSlipsToCreate.subList(0, 3)))) //
+				.andExpect(status().isOk());
+
+		// single bankslips
+		String created = this.mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(contentType) //
+				.content(json(bankSlipsToCreate.get(3)))) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse().getContentAsString();
+		String id = JsonPath.read(created, "$.id");
+
+		created = this.mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(contentType) //
+				.content(json(bankSlipsToCreate.get(0)))) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse().getContentAsString();
+		String id2 = JsonPath.read(created, "$.id");
+
+		// pay and cancel
+		mockMvc.perform(put(REQUEST_MAPPING + id2 + "/pay")).andExpect(status().isOk());
+		mockMvc.perform(delete(REQUEST_MAPPING + id + "/cancel")).andExpect(status().isOk());
+
+		// failed transitions don't change the summary
+		mockMvc.perform(put(REQUEST_MAPPING + id2 + "/pay")).andExpect(status().is(HttpStatus.CONFLICT.value()));
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Summary Customer")) //
+				.andExpect(status().isOk()) //
+				.andExpect(content().contentType(contentType)) //
+				.andExpect(jsonPath("customer", is("Summary Customer"))) //
+				.andExpect(jsonPath("pending_count", is(2))) //
+				.andExpect(jsonPath("pending_in_cents", is(3000))) //
+				.andExpect(jsonPath("paid_count", is(2))) //
+				.andExpect(jsonPath("paid_in_cents", is(5000))) //
+				.andExpect(jsonPath("canceled_count", is(0))) //
+				.andExpect(jsonPath("canceled_in_cents", is(0)));
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Another Customer")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", is(0))) //
+				.andExpect(jsonPath("canceled_count", is(1))) //
+				.andExpect(jsonPath("canceled_in_cents", is(8000)));
+
+		// customer without bankslips
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Nobody")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", is(0)));
+
+		// customer not informed
+		mockMvc.perform(get(REQUEST_MAPPING + "summary")) //
+				.andExpect(status().is(HttpStatus.BAD_REQUEST.value()));
+	}
+
 	@SuppressWarnings("unchecked")
 	protected String json(Object o) throws IOException {
+		if (o == null)
+			return "";
+
 		MockHttpOutputMessage mockHttpOutputMessage = new MockHttpOutputMessage();
 		this.mappingJackson2HttpMessageConverter.write(o, MediaType.APPLICATION_JSON, mockHttpOutputMessage);
 		return mockHttpOutputMessage.getBodyAsString();
@@ -0,0 +1,65 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+public class BankSlipDTOSerializerTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/**
+	 * Serializacao padrao (getters anotados), para comparacao
+	 */
+	private final ObjectMapper beanObjectMapper = new ObjectMapper().addMixIn(BankSlipDTO.class,
+			BeanSerialization.class);
+
+	@Test
+	public void sameOutputAsBeanSerialization() throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		List<BankSlipDTO> bankSlipDTOs = new ArrayList<>();
+		bankSlipDTOs.add(new BankSlipDTO());
+		bankSlipDTOs.add(new BankSlipDTO("2018-05-10", 100000, "Customer \"1\"\nção", null));
+		for (int i = 0; i < 1000; i++) {
+			BankSlipDTO bankSlipDTO = new BankSlipDTO("2018-05-" + (10 + i % 20), random.nextLong(1, 1L << 40),
+					"Customer " + i, BankSlipStatusEnum.values()[i % 3]);
+			bankSlipDTO.setId(new UUID(random.nextLong(), random.nextLong()));
+			if (i % 2 == 0)
+				bankSlipDTO.setFine(random.nextLong(0, 100000));
+			bankSlipDTOs.add(bankSlipDTO);
+		}
+
+		for (BankSlipDTO bankSlipDTO : bankSlipDTOs)
+			assertEquals(beanObjectMapper.writeValueAsString(bankSlipDTO),
+					objectMapper.writeValueAsString(bankSlipDTO));
+
+		assertEquals(beanObjectMapper.writeValueAsString(bankSlipDTOs), objectMapper.writeValueAsString(bankSlipDTOs));
+	}
+
+	@Test
+	public void statusNotInformedIsPending() throws Exception {
+		BankSlipDTO bankSlipDTO = new BankSlipDTO("2018-05-10", 100000, "Customer", null);
+
+		assertEquals("{\"id\":null,\"due_date\":\"2018-05-10\",\"total_in_cents\":100000,\"customer\":\"Customer\","
+				+ "\"status\":\"PENDING\"}", objectMapper.writeValueAsString(bankSlipDTO));
+		assertEquals(BankSlipStatusEnum.PENDING, bankSlipDTO.getEntityToSave().getStatus());
+	}
+
+	@JsonSerialize(using = JsonSerializer.None.class)
+	private interface BeanSerialization {
+	}
+
+}
@@ -0,0 +1,163 @@
+package bankslip;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipCursor;
+import bankslips.data.BankSlipFilter;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, properties = "spring.jpa.properties.hibernate.session_factory"
+		+ ".statement_inspector=bankslip.BankSlipRepositoryTest$LastStatement")
+public class BankSlipRepositoryTest {
+
+	private static final LocalDate FIRST_DUE_DATE = LocalDate.of(2018, 5, 1);
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void setUp() throws Exception {
+		bankSlipRepository.deleteAll();
+
+		List<BankSlip> bankSlips = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			BankSlipDTO bankSlipDTO = new BankSlipDTO(DateCodec.format(FIRST_DUE_DATE.plusDays(i % 30)), 1000 + i,
+					"Customer " + (i % 10), BankSlipStatusEnum.values()[i % 3]);
+			bankSlips.add(bankSlipDTO.getEntityToSave());
+		}
+		bankSlipRepository.saveAll(bankSlips);
+
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@Test
+	public void findPageByStatusAndDueDate() {
+		List<BankSlip> bankSlips = bankSlipRepository.findPage(statusFilter(), 1000);
+
+		assertEquals(30, bankSlips.size());
+		for (BankSlip bankSlip : bankSlips)
+			assertEquals(BankSlipStatusEnum.PENDING, bankSlip.getStatus());
+	}
+
+	@Test
+	public void findPageByCustomerAndDueDate() {
+		BankSlipFilter filter = customerFilter();
+		List<BankSlip> bankSlips = bankSlipRepository.findPage(filter, 10);
+
+		assertEquals(10, bankSlips.size());
+		for (int i = 1; i < bankSlips.size(); i++)
+			assertFalse(bankSlips.get(i - 1).getDueDate().isAfter(bankSlips.get(i).getDueDate()));
+
+		// as proximas paginas continuam depois do cursor
+		Set<UUID> ids = new HashSet<>();
+		for (BankSlip bankSlip : bankSlips)
+			ids.add(bankSlip.getId());
+
+		filter.setAfter(BankSlipCursor.after(bankSlips.get(bankSlips.size() - 1)));
+		for (BankSlip bankSlip : bankSlipRepository.findPage(filter, 1000))
+			assertTrue(ids.add(bankSlip.getId()));
+		assertEquals(30, ids.size());
+	}
+
+	@Test
+	public void statusAndDueDateQueriesUseIndex() {
+		bankSlipRepository.findPage(statusFilter(), 10);
+
+		String plan = explain(LastStatement.sql, BankSlipStatusEnum.PENDING.getCode(), FIRST_DUE_DATE,
+				FIRST_DUE_DATE.plusDays(6), 10);
+
+		assertThat(plan, containsString("IDX_BANK_SLIP_STATUS_DUE_DATE"));
+	}
+
+	@Test
+	public void customerAndDueDateQueriesUseIndex() {
+		BankSlipFilter filter = customerFilter();
+		BankSlip last = bankSlipRepository.findPage(filter, 10).get(9);
+
+		// pagina depois do cursor
+		filter.setAfter(BankSlipCursor.after(last));
+		bankSlipRepository.findPage(filter, 10);
+
+		String plan = explain(LastStatement.sql, "Customer 3", FIRST_DUE_DATE, FIRST_DUE_DATE.plusDays(29),
+				last.getDueDate(), last.getDueDate(), last.getDueDate(), bytes(last.getId()), 10);
+
+		assertThat(plan, containsString("IDX_BANK_SLIP_CUSTOMER_DUE_DATE"));
+	}
+
+	private BankSlipFilter statusFilter() {
+		BankSlipFilter filter = new BankSlipFilter();
+		filter.setStatus(BankSlipStatusEnum.PENDING);
+		filter.setDueDateFrom(FIRST_DUE_DATE);
+		filter.setDueDateTo(FIRST_DUE_DATE.plusDays(6));
+		return filter;
+	}
+
+	private BankSlipFilter customerFilter() {
+		BankSlipFilter filter = new BankSlipFilter();
+		filter.setCustomer("Customer 3");
+		filter.setDueDateFrom(FIRST_DUE_DATE);
+		filter.setDueDateTo(FIRST_DUE_DATE.plusDays(29));
+		return filter;
+	}
+
+	/**
+	 * Plano do comando gerado pelo Hibernate, com os parametros na ordem dos
+	 * placeholders
+	 */
+	private String explain(String sql, Object... parameters) {
+		return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters).toUpperCase();
+	}
+
+	private static byte[] bytes(UUID id) {
+		return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+				.array();
+	}
+
+	/**
+	 * Ultimo comando SQL enviado pelo Hibernate
+	 */
+	public static class LastStatement implements StatementInspector {
+
+		private static final long serialVersionUID = 1L;
+
+		static volatile String sql;
+
+		@Override
+		public String inspect(String sql) {
+			LastStatement.sql = sql;
+			return sql;
+		}
+
+	}
+
+}
@@ -0,0 +1,180 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.BankSlipShards;
+import bankslips.data.BankSlipWriteBehindQueue;
+import bankslips.data.WriteBehindJournal;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = { "bankslips.write-behind.enabled=true",
+		"bankslips.write-behind.journal-dir=" + BankSlipWriteBehindTest.JOURNAL_DIR })
+public class BankSlipWriteBehindTest {
+
+	static final String JOURNAL_DIR = "target/write-behind-journal";
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private static final String LONG_CUSTOMER = "X".repeat(BankSlip.CUSTOMER_MAX_LENGTH + 1);
+
+	// boletos do journal de uma execucao anterior, gravados ao iniciar
+	private static final UUID RECOVERED_ID = new UUID(1, 1);
+
+	private static final UUID RECOVERED_REJECTED_ID = new UUID(1, 2);
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private BankSlipWriteBehindQueue bankSlipWriteBehindQueue;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	@BeforeClass
+	public static void writeJournal() throws IOException {
+		Path directory = Paths.get(JOURNAL_DIR);
+		if (Files.exists(directory)) {
+			try (Stream<Path> files = Files.list(directory)) {
+				for (Path file : (Iterable<Path>) files::iterator)
+					Files.delete(file);
+			}
+		}
+
+		// boleto aceito por uma versao que nao validava o tamanho do cliente
+		try (WriteBehindJournal journal = new WriteBehindJournal(directory, new ObjectMapper(), 1 << 20, false)) {
+			journal.append(bankSlip(RECOVERED_ID, "Recovered"));
+			journal.append(bankSlip(RECOVERED_REJECTED_ID, LONG_CUSTOMER));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		this.mockMvc = webAppContextSetup(webApplicationContext).build();
+	}
+
+	@Test
+	public void createBankSlipAsync() throws Exception {
+		BankSlipDTO bankSlipToCreate = new BankSlipDTO("2018-05-10", 100000, "Write Behind", BankSlipStatusEnum.PENDING);
+
+		String accepted = mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content(objectMapper.writeValueAsString(bankSlipToCreate))) //
+				.andExpect(status().isAccepted()) //
+				.andReturn().getResponse().getContentAsString();
+
+		UUID id = UUID.fromString(JsonPath.read(accepted, "$.id"));
+
+		// gravado pelas threads da fila
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!bankSlipRepository.existsById(id) && System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		assertTrue(bankSlipRepository.existsById(id));
+
+		BankSlip bankSlip = bankSlipRepository.findById(id).get();
+		assertEquals(100000, bankSlip.getTotalInCents());
+		assertEquals("Write Behind", bankSlip.getCustomer());
+
+		// boleto invalido continua sendo recusado na requisicao
+		bankSlipToCreate.setTotalInCents(0L);
+		mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content(objectMapper.writeValueAsString(bankSlipToCreate))) //
+				.andExpect(status().isUnprocessableEntity());
+
+		// cliente maior que a coluna
+		bankSlipToCreate.setTotalInCents(100000L);
+		bankSlipToCreate.setCustomer(LONG_CUSTOMER);
+		mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content(objectMapper.writeValueAsString(bankSlipToCreate))) //
+				.andExpect(status().isUnprocessableEntity());
+	}
+
+	@Test
+	public void recoveredBankSlipsAreSavedOrRejected() throws Exception {
+		assertTrue(bankSlipRepository.existsById(RECOVERED_ID));
+		assertFalse(bankSlipRepository.existsById(RECOVERED_REJECTED_ID));
+		assertTrue(rejected().contains(RECOVERED_REJECTED_ID.toString()));
+	}
+
+	@Test
+	public void rejectedBankSlipDoesNotBlockTheQueue() throws Exception {
+		BankSlip rejected = bankSlip(null, LONG_CUSTOMER).getEntityToSave();
+		BankSlip accepted = bankSlip(null, "Accepted").getEntityToSave();
+		bankSlipShards.assignId(rejected);
+		bankSlipShards.assignId(accepted);
+
+		// o boleto recusado pela base e o valido no mesmo lote
+		bankSlipWriteBehindQueue.submit(rejected);
+		bankSlipWriteBehindQueue.submit(accepted);
+
+		// a metade com o boleto recusado pode ser rejeitada antes da gravacao da
+		// outra metade, e ha mais de uma thread de gravacao
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!(rejected().contains(rejected.getId().toString()) && bankSlipRepository.existsById(accepted.getId()))
+				&& System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		assertTrue(rejected().contains(rejected.getId().toString()));
+		assertTrue(bankSlipRepository.existsById(accepted.getId()));
+		assertFalse(bankSlipRepository.existsById(rejected.getId()));
+	}
+
+	private static BankSlipDTO bankSlip(UUID id, String customer) {
+		BankSlipDTO bankSlipDTO = new BankSlipDTO("2018-05-10", 100000, customer, BankSlipStatusEnum.PENDING);
+		bankSlipDTO.setId(id);
+		return bankSlipDTO;
+	}
+
+	private static String rejected() throws IOException {
+		Path rejected = Paths.get(JOURNAL_DIR, WriteBehindJournal.REJECTED);
+		return Files.exists(rejected) ? new String(Files.readAllBytes(rejected), StandardCharsets.UTF_8) : "";
+	}
+
+}
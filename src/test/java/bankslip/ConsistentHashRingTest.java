@@ -0,0 +1,58 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import bankslips.data.ConsistentHashRing;
+
+public class ConsistentHashRingTest {
+
+	private static final int KEYS = 100000;
+
+	@Test
+	public void keysAreSpreadAcrossShards() {
+		ConsistentHashRing ring = new ConsistentHashRing(4);
+
+		int[] counts = new int[4];
+		Random random = new Random(1);
+		for (int i = 0; i < KEYS; i++)
+			counts[ring.shardOf(random.nextInt())]++;
+
+		for (int count : counts)
+			assertTrue(Arrays.toString(counts), Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2);
+	}
+
+	@Test
+	public void addingShardOnlyMovesKeysToTheNewShard() {
+		ConsistentHashRing before = new ConsistentHashRing(4);
+		ConsistentHashRing after = new ConsistentHashRing(5);
+
+		int moved = 0;
+		Random random = new Random(2);
+		for (int i = 0; i < KEYS; i++) {
+			int hash = random.nextInt();
+			if (before.shardOf(hash) != after.shardOf(hash)) {
+				assertEquals(4, after.shardOf(hash));
+				moved++;
+			}
+		}
+
+		// cerca de 1/5 das chaves
+		assertTrue(String.valueOf(moved), Math.abs(moved - KEYS / 5) < KEYS / 5 * 0.2);
+	}
+
+	@Test
+	public void singleShard() {
+		ConsistentHashRing ring = new ConsistentHashRing(1);
+
+		assertEquals(0, ring.shardOf(Integer.MIN_VALUE));
+		assertEquals(0, ring.shardOf(0));
+		assertEquals(0, ring.shardOf(Integer.MAX_VALUE));
+	}
+
+}
@@ -0,0 +1,142 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.util.UUID;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+
+import bankslips.Application;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.BankSlipService;
+import bankslips.data.CustomerSummaryRepository;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+/**
+ * Resumo por cliente mantido na transacao do boleto, com um pool de uma unica
+ * conexao: uma transacao aninhada esperaria pela conexao retida ate o timeout
+ * do pool
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = { "spring.jpa.open-in-view=false",
+		"spring.datasource.url=" + CustomerSummaryTransactionTest.URL, "spring.datasource.hikari.maximum-pool-size=1",
+		"spring.datasource.hikari.connection-timeout=1000", "spring.flyway.url=" + CustomerSummaryTransactionTest.URL,
+		"spring.flyway.user=sa" })
+public class CustomerSummaryTransactionTest {
+
+	// migrado pelo Flyway com uma conexao propria, fora do pool
+	static final String URL = "jdbc:h2:mem:single-connection;DB_CLOSE_DELAY=-1";
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Autowired
+	private BankSlipService bankSlipService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Before
+	public void setUp() {
+		this.mockMvc = webAppContextSetup(webApplicationContext).build();
+		this.bankSlipRepository.deleteAll();
+		this.customerSummaryRepository.deleteAll();
+	}
+
+	@Test
+	public void newCustomersWithSingleConnection() throws Exception {
+		String id = create("Single Connection");
+
+		mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content("[{\"due_date\":\"2018-05-10\",\"total_in_cents\":1000,\"customer\":\"Batch 1\"},"
+						+ "{\"due_date\":\"2018-05-10\",\"total_in_cents\":1000,\"customer\":\"Batch 2\"}]")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$[*].status", Matchers.everyItem(Matchers.is(201))));
+
+		mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Single Connection")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", Matchers.is(0))) //
+				.andExpect(jsonPath("paid_count", Matchers.is(1)));
+	}
+
+	@Test
+	public void rolledBackStatusChangeIsNotCached() throws Exception {
+		UUID id = UUID.fromString(create("Rollback"));
+
+		String eTag = mockMvc.perform(get(REQUEST_MAPPING + id)) //
+				.andExpect(status().isOk()) //
+				.andReturn().getResponse().getHeader("ETag");
+		cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			bankSlipService.updateStatus(id, BankSlipStatusEnum.PAID);
+			status.setRollbackOnly();
+		});
+
+		assertNull(cacheManager.getCache(BankSlipRepository.CACHE_NAME).get(id));
+		assertEquals(BankSlipStatusEnum.PENDING, bankSlipRepository.findById(id).get().getStatus());
+
+		mockMvc.perform(get(REQUEST_MAPPING + id).header("If-None-Match", eTag)) //
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Rollback")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", Matchers.is(1))) //
+				.andExpect(jsonPath("paid_count", Matchers.is(0)));
+	}
+
+	private String create(String customer) throws Exception {
+		String created = mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content("{\"due_date\":\"2018-05-10\",\"total_in_cents\":1000,\"customer\":\"" + customer + "\"}")) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse().getContentAsString();
+
+		return JsonPath.read(created, "$.id");
+	}
+
+}
@@ -0,0 +1,84 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import bankslips.utils.DateCodec;
+
+public class DateCodecTest {
+
+	private static final long FIRST_DAY = LocalDate.of(1900, 1, 1).toEpochDay();
+	private static final long LAST_DAY = LocalDate.of(2100, 12, 31).toEpochDay();
+
+	@Test
+	public void parseAndFormatEveryDay() throws Exception {
+		for (long epochDay = FIRST_DAY; epochDay <= LAST_DAY; epochDay++) {
+			String expected = LocalDate.ofEpochDay(epochDay).toString();
+
+			assertEquals(expected, DateCodec.format(epochDay));
+			assertEquals(epochDay, DateCodec.parseEpochDay(expected));
+		}
+
+		assertEquals("0000-01-01", DateCodec.format(LocalDate.of(0, 1, 1)));
+		assertEquals("9999-12-31", DateCodec.format(LocalDate.of(9999, 12, 31)));
+	}
+
+	@Test
+	public void parseInvalidDates() {
+		String[] invalidDates = { null, "", "XXXXX", "2018-5-10", "2018-05-10 ", "2018/05/10", "2018-13-01",
+				"2018-00-10", "2018-02-29", "2018-04-31", "2018-05-00", "+018-05-10", "2018-05-1a" };
+
+		for (String invalidDate : invalidDates) {
+			try {
+				DateCodec.parseEpochDay(invalidDate);
+				fail("date must be invalid: " + invalidDate);
+			} catch (ParseException e) {
+				// esperado
+			}
+		}
+	}
+
+	@Test
+	public void parseAndFormatConcurrently() throws Exception {
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				tasks.add(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < 100_000; i++) {
+						long epochDay = random.nextLong(FIRST_DAY, LAST_DAY + 1);
+						LocalDate expected = LocalDate.ofEpochDay(epochDay);
+
+						String text = DateCodec.format(epochDay);
+						assertEquals(expected.toString(), text);
+						assertEquals(expected, DateCodec.parse(text));
+						assertEquals(expected.toString(), DateCodec.format(expected));
+					}
+					return null;
+				});
+			}
+
+			for (Future<Void> result : executor.invokeAll(tasks))
+				result.get();
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import bankslips.data.FineCalculator;
+
+public class FineCalculatorTest {
+
+	private static final ZoneId ZONE = ZoneId.of("America/Sao_Paulo");
+
+	private final MutableClock clock = new MutableClock(LocalDate.of(2018, 5, 20));
+
+	private final FineCalculator fineCalculator = new FineCalculator(clock, 10, 50, 100);
+
+	@Test
+	public void tiers() {
+		long today = LocalDate.of(2018, 5, 20).toEpochDay();
+
+		assertEquals(FineCalculator.TIER_NONE, fineCalculator.tier(today + 1));
+		assertEquals(FineCalculator.TIER_NONE, fineCalculator.tier(today));
+		assertEquals(FineCalculator.TIER_UNTIL_LIMIT, fineCalculator.tier(today - 1));
+		assertEquals(FineCalculator.TIER_UNTIL_LIMIT, fineCalculator.tier(today - 10));
+		assertEquals(FineCalculator.TIER_AFTER_LIMIT, fineCalculator.tier(today - 11));
+	}
+
+	@Test
+	public void fine() {
+		assertEquals(0, fineCalculator.fine(100000, FineCalculator.TIER_NONE));
+		assertEquals(500, fineCalculator.fine(100000, FineCalculator.TIER_UNTIL_LIMIT));
+		assertEquals(1000, fineCalculator.fine(100000, FineCalculator.TIER_AFTER_LIMIT));
+
+		// fracoes de centavo sao truncadas
+		assertEquals(0, fineCalculator.fine(199, FineCalculator.TIER_UNTIL_LIMIT));
+		assertEquals(1, fineCalculator.fine(199, FineCalculator.TIER_AFTER_LIMIT));
+		assertEquals(6172, fineCalculator.fine(1234567, FineCalculator.TIER_UNTIL_LIMIT));
+
+		// valores acima do limite de Integer
+		assertEquals(50_000_000_000L, fineCalculator.fine(10_000_000_000_000L, FineCalculator.TIER_UNTIL_LIMIT));
+	}
+
+	@Test
+	public void todayFollowsTheClock() {
+		LocalDate date = LocalDate.of(2018, 5, 20);
+		assertEquals(date.toEpochDay(), fineCalculator.today());
+
+		// ultimo milissegundo do dia
+		clock.set(date.plusDays(1).atStartOfDay(ZONE).toInstant().minusMillis(1));
+		assertEquals(date.toEpochDay(), fineCalculator.today());
+
+		// virada do dia
+		clock.set(date.plusDays(1).atStartOfDay(ZONE).toInstant());
+		assertEquals(date.toEpochDay() + 1, fineCalculator.today());
+
+		// relogio ajustado para tras
+		clock.set(date.minusDays(3).atStartOfDay(ZONE).toInstant());
+		assertEquals(date.toEpochDay() - 3, fineCalculator.today());
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant;
+
+		private MutableClock(LocalDate date) {
+			this.instant = date.atTime(12, 0).atZone(ZONE).toInstant();
+		}
+
+		private void set(Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZONE;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return Clock.fixed(instant, ZoneOffset.UTC).withZone(zone);
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import bankslips.Application;
+import bankslips.data.BankSlip;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.FineCalculator;
+import bankslips.data.OverdueSweepCheckpoint;
+import bankslips.data.OverdueSweepCheckpointRepository;
+import bankslips.data.OverdueSweepService;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+import bankslips.utils.DateCodec;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = "bankslips.overdue-sweep.batch-size=2")
+public class OverdueSweepServiceTest {
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private OverdueSweepCheckpointRepository checkpointRepository;
+
+	@Autowired
+	private OverdueSweepService overdueSweepService;
+
+	@Before
+	public void setUp() {
+		bankSlipRepository.deleteAll();
+		checkpointRepository.deleteAll();
+	}
+
+	@Test
+	public void sweepUpdatesOnlyChangedTiers() throws Exception {
+		UUID notOverdue = save(0, BankSlipStatusEnum.PENDING);
+		UUID untilLimit = save(1, BankSlipStatusEnum.PENDING);
+		UUID atLimit = save(10, BankSlipStatusEnum.PENDING);
+		UUID afterLimit = save(11, BankSlipStatusEnum.PENDING);
+		UUID longAfterLimit = save(30, BankSlipStatusEnum.PENDING);
+		UUID paid = save(30, BankSlipStatusEnum.PAID);
+
+		assertEquals(4, overdueSweepService.sweep());
+
+		assertFine(notOverdue, FineCalculator.TIER_NONE, 0);
+		assertFine(untilLimit, FineCalculator.TIER_UNTIL_LIMIT, 500);
+		assertFine(atLimit, FineCalculator.TIER_UNTIL_LIMIT, 500);
+		assertFine(afterLimit, FineCalculator.TIER_AFTER_LIMIT, 1000);
+		assertFine(longAfterLimit, FineCalculator.TIER_AFTER_LIMIT, 1000);
+		assertFine(paid, FineCalculator.TIER_NONE, 0);
+
+		OverdueSweepCheckpoint checkpoint = checkpointRepository.findById(OverdueSweepCheckpoint.ID).get();
+		assertTrue(checkpoint.isCompleted());
+		assertEquals(LocalDate.now(), checkpoint.getSweepDate());
+
+		// varredura do dia ja concluida
+		assertEquals(0, overdueSweepService.sweep());
+
+		// nova varredura no mesmo dia: nenhum boleto mudou de faixa
+		checkpointRepository.deleteAll();
+		assertEquals(0, overdueSweepService.sweep());
+
+		// multa exibida na listagem
+		BankSlipDTO bankSlipDTO = new BankSlipDTO(bankSlipRepository.findById(afterLimit).get());
+		assertEquals(Long.valueOf(1000), bankSlipDTO.getFine());
+		assertNull(new BankSlipDTO(bankSlipRepository.findById(paid).get()).getFine());
+	}
+
+	@Test
+	public void sweepResumesFromCheckpoint() throws Exception {
+		UUID untilLimit = save(1, BankSlipStatusEnum.PENDING);
+		UUID afterLimit = save(20, BankSlipStatusEnum.PENDING);
+
+		// varredura interrompida depois de concluir a faixa TIER_NONE
+		OverdueSweepCheckpoint checkpoint = new OverdueSweepCheckpoint();
+		checkpoint.restart(LocalDate.now());
+		checkpoint.setFineTier(FineCalculator.TIER_UNTIL_LIMIT);
+		checkpointRepository.save(checkpoint);
+
+		assertEquals(0, overdueSweepService.sweep());
+		assertFine(untilLimit, FineCalculator.TIER_NONE, 0);
+		assertFine(afterLimit, FineCalculator.TIER_NONE, 0);
+
+		// boleto gravado na faixa TIER_UNTIL_LIMIT antes da interrupcao
+		checkpoint.restart(LocalDate.now());
+		checkpoint.setFineTier(FineCalculator.TIER_UNTIL_LIMIT);
+		checkpointRepository.save(checkpoint);
+		BankSlip bankSlip = bankSlipRepository.findById(afterLimit).get();
+		bankSlipRepository.updateFine(afterLimit, BankSlipStatusEnum.PENDING, FineCalculator.TIER_NONE,
+				FineCalculator.TIER_UNTIL_LIMIT, 500);
+
+		assertEquals(1, overdueSweepService.sweep());
+		assertFine(untilLimit, FineCalculator.TIER_NONE, 0);
+		assertFine(afterLimit, FineCalculator.TIER_AFTER_LIMIT, 1000);
+		assertEquals(bankSlip.getVersion() + 2, bankSlipRepository.findById(afterLimit).get().getVersion());
+	}
+
+	@Test
+	public void sweepRestartsOnNewDay() throws Exception {
+		UUID untilLimit = save(1, BankSlipStatusEnum.PENDING);
+
+		OverdueSweepCheckpoint checkpoint = new OverdueSweepCheckpoint();
+		checkpoint.restart(LocalDate.now().minusDays(1));
+		checkpoint.setCompleted(true);
+		checkpointRepository.save(checkpoint);
+
+		assertEquals(1, overdueSweepService.sweep());
+		assertFine(untilLimit, FineCalculator.TIER_UNTIL_LIMIT, 500);
+	}
+
+	@Test
+	public void resumedSweepRunsInBackground() throws Exception {
+		UUID untilLimit = save(1, BankSlipStatusEnum.PENDING);
+
+		// varredura em andamento em outra thread
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread sweeping = new Thread(() -> {
+			synchronized (overdueSweepService) {
+				locked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		sweeping.start();
+		locked.await();
+
+		// a retomada nao espera pela varredura
+		try {
+			CompletableFuture.runAsync(overdueSweepService::resumeSweep).get(5, TimeUnit.SECONDS);
+		} finally {
+			release.countDown();
+		}
+
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (bankSlipRepository.findById(untilLimit).get().getFineTier() != FineCalculator.TIER_UNTIL_LIMIT
+				&& System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		assertFine(untilLimit, FineCalculator.TIER_UNTIL_LIMIT, 500);
+	}
+
+	private UUID save(int overdueDays, BankSlipStatusEnum status) throws Exception {
+		BankSlipDTO bankSlipDTO = new BankSlipDTO(DateCodec.format(LocalDate.now().minusDays(overdueDays)), 100000,
+				"Trillian Company", status);
+
+		List<BankSlip> bankSlips = new ArrayList<>();
+		bankSlips.add(bankSlipDTO.getEntityToSave());
+
+		return bankSlipRepository.saveAll(bankSlips).iterator().next().getId();
+	}
+
+	private void assertFine(UUID id, int fineTier, long fine) {
+		BankSlip bankSlip = bankSlipRepository.findById(id).get();
+		assertEquals(fineTier, bankSlip.getFineTier());
+		assertEquals(fine, bankSlip.getFine());
+	}
+
+}
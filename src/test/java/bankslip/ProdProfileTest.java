@@ -0,0 +1,100 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.util.Map;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+
+import bankslips.Application;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.CustomerSummaryRepository;
+import bankslips.data.DatabaseSettingsReport;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@ActiveProfiles("prod")
+@TestPropertySource(properties = "bankslips.data-dir=./target/prod-data")
+public class ProdProfileTest {
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Autowired
+	private DatabaseSettingsReport databaseSettingsReport;
+
+	@Before
+	public void setUp() {
+		this.mockMvc = webAppContextSetup(webApplicationContext).build();
+		this.bankSlipRepository.deleteAll();
+		this.customerSummaryRepository.deleteAll();
+	}
+
+	@Test
+	public void effectiveSettings() throws Exception {
+		Map<String, Object> settings = databaseSettingsReport.settings();
+
+		assertEquals("jdbc:h2:file:./target/prod-data/bankslips", settings.get("url"));
+		assertEquals("true", settings.get("h2.MV_STORE"));
+		assertEquals("131072", settings.get("h2.CACHE_SIZE"));
+		assertEquals("64", settings.get("h2.QUERY_CACHE_SIZE"));
+		assertEquals(10000, settings.get("h2.LOCK_TIMEOUT"));
+		assertEquals(16, settings.get("hikari.maximum-pool-size"));
+		assertEquals(60000L, settings.get("hikari.leak-detection-threshold"));
+		assertEquals(false, settings.get("hikari.auto-commit"));
+		assertEquals("false", settings.get("spring.jpa.open-in-view"));
+	}
+
+	@Test
+	public void bankSlipLifecycle() throws Exception {
+		String created = mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content("{\"due_date\":\"2018-05-10\",\"total_in_cents\":100000,\"customer\":\"Prod\"}")) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse().getContentAsString();
+		String id = JsonPath.read(created, "id");
+
+		mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Prod").param("status", "PAID")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", Matchers.hasSize(1)));
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Prod")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("paid_in_cents", Matchers.is(100000)));
+	}
+
+}
@@ -0,0 +1,183 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import bankslips.Application;
+import bankslips.controllers.BankSlipController;
+import bankslips.data.BankSlipCursor;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.CustomerSummaryRepository;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveBankSlipControllerTest {
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private static final int LARGE_BATCH_SIZE = 2000;
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Before
+	public void setUp() {
+		bankSlipRepository.deleteAll();
+		customerSummaryRepository.deleteAll();
+	}
+
+	@Test
+	public void sameContractAsServletApi() {
+		BankSlipDTO created = webTestClient.post().uri(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.bodyValue(new BankSlipDTO("2018-05-10", 100000, "Reactive Customer", BankSlipStatusEnum.PENDING)) //
+				.exchange() //
+				.expectStatus().isCreated() //
+				.expectBody(BankSlipDTO.class).returnResult().getResponseBody();
+
+		List<BankSlipDTO> bankSlipsToCreate = Arrays.asList( //
+				new BankSlipDTO("2018-05-11", 2000, "Reactive Customer", BankSlipStatusEnum.PENDING), //
+				new BankSlipDTO("2018-05-12", 0, "Error", BankSlipStatusEnum.PENDING));
+
+		webTestClient.post().uri(REQUEST_MAPPING + "batch") //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.bodyValue(bankSlipsToCreate) //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody() //
+				.jsonPath("$[0].status").isEqualTo(HttpStatus.CREATED.value()) //
+				.jsonPath("$[1].status").isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY.value());
+
+		// paginated list
+		webTestClient.get().uri(REQUEST_MAPPING + "?limit=1") //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectHeader().valueEquals(BankSlipController.NEXT_CURSOR_HEADER,
+						new BankSlipCursor(LocalDate.of(2018, 5, 10), created.getId())
+								.encode()) //
+				.expectBody() //
+				.jsonPath("$.length()").isEqualTo(1) //
+				.jsonPath("$[0].id").isEqualTo(created.getId().toString());
+
+		// export
+		String ndjson = webTestClient.get().uri(REQUEST_MAPPING + "export") //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody(String.class).returnResult().getResponseBody();
+		assertEquals(2, ndjson.split("\n").length);
+
+		String csv = webTestClient.get().uri(REQUEST_MAPPING + "export?format=csv") //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody(String.class).returnResult().getResponseBody();
+		assertEquals(3, csv.split("\n").length);
+
+		// conditional get
+		String eTag = webTestClient.get().uri(REQUEST_MAPPING + created.getId()) //
+				.exchange() //
+				.expectStatus().isOk() //
+				.returnResult(BankSlipDTO.class).getResponseHeaders().getETag();
+
+		webTestClient.get().uri(REQUEST_MAPPING + created.getId()) //
+				.header("If-None-Match", eTag) //
+				.exchange() //
+				.expectStatus().isNotModified() //
+				.expectBody().isEmpty();
+
+		// pay
+		webTestClient.put().uri(REQUEST_MAPPING + created.getId() + "/pay") //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody().jsonPath("status").isEqualTo(BankSlipStatusEnum.PAID.name());
+
+		webTestClient.get().uri(REQUEST_MAPPING + "summary?customer=Reactive Customer") //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody() //
+				.jsonPath("pending_count").isEqualTo(1) //
+				.jsonPath("paid_in_cents").isEqualTo(100000);
+	}
+
+	@Test
+	public void batchLargerThanTheCodecBuffer() {
+		// ~350 KB, acima dos 256 KB que o WebFlux guarda em memoria por padrao
+		String customer = String.join("", Collections.nCopies(100, "c"));
+		List<BankSlipDTO> bankSlipsToCreate = new ArrayList<>();
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+			bankSlipsToCreate.add(new BankSlipDTO("2018-05-10", 1000 + i, customer, BankSlipStatusEnum.PENDING));
+			ndjson.append("{\"due_date\":\"2018-05-10\",\"total_in_cents\":").append(1000 + i)
+					.append(",\"customer\":\"").append(customer).append("\"}\n");
+		}
+
+		webTestClient.post().uri(REQUEST_MAPPING + "batch") //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.bodyValue(bankSlipsToCreate) //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody() //
+				.jsonPath("$.length()").isEqualTo(LARGE_BATCH_SIZE) //
+				.jsonPath("$[*].status").value(Matchers.everyItem(Matchers.is(HttpStatus.CREATED.value())));
+
+		webTestClient.post().uri(REQUEST_MAPPING + "batch") //
+				.contentType(MediaType.APPLICATION_NDJSON) //
+				.bodyValue(ndjson.toString()) //
+				.exchange() //
+				.expectStatus().isOk() //
+				.expectBody() //
+				.jsonPath("$.length()").isEqualTo(LARGE_BATCH_SIZE) //
+				.jsonPath("$[*].status").value(Matchers.everyItem(Matchers.is(HttpStatus.CREATED.value())));
+
+		assertEquals(2 * LARGE_BATCH_SIZE, bankSlipRepository.count());
+	}
+
+	@Test
+	public void errorsUseTheCustomErrorShape() {
+		webTestClient.get().uri(REQUEST_MAPPING + "its_not_an_uuid") //
+				.accept(MediaType.APPLICATION_JSON) //
+				.exchange() //
+				.expectStatus().isBadRequest() //
+				.expectBody() //
+				.jsonPath("status").isEqualTo(HttpStatus.BAD_REQUEST.value()) //
+				.jsonPath("message").isNotEmpty() //
+				.jsonPath("timestamp").doesNotExist();
+
+		webTestClient.get().uri(REQUEST_MAPPING + "00000000-0000-000a-0000-00000000000a") //
+				.accept(MediaType.APPLICATION_JSON) //
+				.exchange() //
+				.expectStatus().isNotFound();
+
+		webTestClient.get().uri(REQUEST_MAPPING + "?limit=0") //
+				.accept(MediaType.APPLICATION_JSON) //
+				.exchange() //
+				.expectStatus().isBadRequest();
+	}
+
+}
@@ -0,0 +1,192 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+
+import bankslips.Application;
+import bankslips.controllers.ReadYourWritesFilter;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.CustomerSummaryRepository;
+
+/**
+ * Leituras nas replicas com duas bases H2 em memoria: o primario e uma replica
+ * atualizada apenas quando o teste chama replicate()
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = { "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+		"bankslips.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL })
+public class ReplicaRoutingTest {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:replication-primary;DB_CLOSE_DELAY=-1";
+
+	static final String REPLICA_URL = "jdbc:h2:mem:replication-replica;DB_CLOSE_DELAY=-1";
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private ReadYourWritesFilter readYourWritesFilter;
+
+	@Autowired
+	private BankSlipRepository bankSlipRepository;
+
+	@Autowired
+	private CustomerSummaryRepository customerSummaryRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Before
+	public void setUp() throws SQLException {
+		this.mockMvc = webAppContextSetup(webApplicationContext).addFilters(readYourWritesFilter).build();
+		this.bankSlipRepository.deleteAll();
+		this.customerSummaryRepository.deleteAll();
+		this.cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+		replicate();
+	}
+
+	@Test
+	public void readsFollowSessionToken() throws Exception {
+		MockHttpServletResponse created = createBankSlip("Replica");
+		String token = created.getHeader(ReadYourWritesFilter.HEADER);
+		assertNotNull(token);
+
+		// a escrita foi para o primario, e a replica ainda nao a recebeu
+		assertEquals(1, count(PRIMARY_URL));
+		assertEquals(0, count(REPLICA_URL));
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Replica")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", Matchers.hasSize(0)));
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Replica").header(ReadYourWritesFilter.HEADER, token)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", Matchers.hasSize(1)));
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Replica").header(ReadYourWritesFilter.HEADER, "x")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", Matchers.hasSize(1)));
+
+		replicate();
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Replica")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$", Matchers.hasSize(1)));
+	}
+
+	@Test
+	public void readsFromReplicaWhenCaughtUp() throws Exception {
+		MockHttpServletResponse created = createBankSlip("Replica");
+		String token = created.getHeader(ReadYourWritesFilter.HEADER);
+		replicate();
+
+		// alteracao feita apenas na replica
+		execute(REPLICA_URL, "UPDATE bank_slip SET total_in_cents = 1");
+
+		mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Replica").header(ReadYourWritesFilter.HEADER, token)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("$[0].total_in_cents", Matchers.is(1)));
+	}
+
+	@Test
+	public void cacheIsNotFilledFromStaleReplica() throws Exception {
+		String id = JsonPath.read(createBankSlip("Replica").getContentAsString(), "id");
+		replicate();
+
+		mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")) //
+				.andExpect(status().isOk());
+		this.cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+
+		// sem session token, mas a leitura preenche o cache
+		mockMvc.perform(get(REQUEST_MAPPING + id)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", Matchers.is("PAID")));
+	}
+
+	private MockHttpServletResponse createBankSlip(String customer) throws Exception {
+		return mockMvc.perform(post(REQUEST_MAPPING) //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content("{\"due_date\":\"2018-05-10\",\"total_in_cents\":100000,\"customer\":\"" + customer + "\"}")) //
+				.andExpect(status().isCreated()) //
+				.andReturn().getResponse();
+	}
+
+	/**
+	 * Copia o primario inteiro para a replica
+	 *
+	 * @throws SQLException
+	 */
+	private static void replicate() throws SQLException {
+		List<String> script = new ArrayList<>();
+		try (Connection connection = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+			while (resultSet.next())
+				script.add(resultSet.getString(1));
+		}
+
+		try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+			for (String sql : script)
+				if (!sql.startsWith("CREATE USER"))
+					statement.execute(sql);
+		}
+	}
+
+	private static void execute(String url, String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+	private static int count(String url) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM bank_slip")) {
+			return resultSet.next() ? resultSet.getInt(1) : 0;
+		}
+	}
+
+}
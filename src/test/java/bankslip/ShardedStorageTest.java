@@ -0,0 +1,372 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.jayway.jsonpath.JsonPath;
+
+import bankslips.Application;
+import bankslips.controllers.BankSlipController;
+import bankslips.data.BankSlipRepository;
+import bankslips.data.BankSlipShards;
+import bankslips.data.ShardRebalancer;
+
+/**
+ * Boletos distribuidos em tres bases H2 em memoria
+ *
+ * @author Armando Almeida <jose@armandoalmeida.com.br>
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@WebAppConfiguration
+@TestPropertySource(properties = { "spring.jpa.open-in-view=false",
+		"bankslips.shards.urls=" + ShardedStorageTest.SHARD_0 + "," + ShardedStorageTest.SHARD_1 + ","
+				+ ShardedStorageTest.SHARD_2 })
+public class ShardedStorageTest {
+
+	static final String SHARD_0 = "jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1";
+
+	static final String SHARD_1 = "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1";
+
+	static final String SHARD_2 = "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1";
+
+	private static final String[] SHARDS = { SHARD_0, SHARD_1, SHARD_2 };
+
+	private static final String REQUEST_MAPPING = "/rest/bankslips/";
+
+	private static final int BANK_SLIPS = 30;
+
+	private MockMvc mockMvc;
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private BankSlipShards bankSlipShards;
+
+	@Autowired
+	private ShardRebalancer shardRebalancer;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Before
+	public void setUp() throws SQLException {
+		this.mockMvc = webAppContextSetup(webApplicationContext).build();
+		for (String shard : SHARDS) {
+			execute(shard, "DELETE FROM bank_slip");
+			execute(shard, "DELETE FROM customer_summary");
+		}
+		this.cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+	}
+
+	@Test
+	public void bankSlipsAreSpreadAcrossShards() throws Exception {
+		List<String> ids = createBankSlips("Shard");
+
+		int total = 0;
+		for (int shard = 0; shard < SHARDS.length; shard++) {
+			List<UUID> shardIds = ids(SHARDS[shard]);
+			assertTrue(!shardIds.isEmpty());
+			for (UUID id : shardIds)
+				assertEquals(shard, bankSlipShards.shardOf(id));
+			total += shardIds.size();
+		}
+		assertEquals(BANK_SLIPS, total);
+
+		for (String id : ids)
+			mockMvc.perform(get(REQUEST_MAPPING + id)) //
+					.andExpect(status().isOk()) //
+					.andExpect(jsonPath("id", Matchers.is(id)));
+	}
+
+	@Test
+	public void pagesAreMergedInListingOrder() throws Exception {
+		createBankSlips("Shard");
+
+		List<String> listed = new ArrayList<>();
+		List<LocalDate> dueDates = new ArrayList<>();
+		String cursor = null;
+		do {
+			MockHttpServletResponse response = mockMvc.perform(get(REQUEST_MAPPING).param("customer", "Shard") //
+					.param("limit", "7").param("cursor", cursor)) //
+					.andExpect(status().isOk()) //
+					.andReturn().getResponse();
+
+			List<String> pageIds = JsonPath.read(response.getContentAsString(), "$[*].id");
+			List<String> pageDueDates = JsonPath.read(response.getContentAsString(), "$[*].due_date");
+			listed.addAll(pageIds);
+			for (String dueDate : pageDueDates)
+				dueDates.add(LocalDate.parse(dueDate));
+
+			cursor = response.getHeader(BankSlipController.NEXT_CURSOR_HEADER);
+		} while (cursor != null);
+
+		assertEquals(BANK_SLIPS, listed.size());
+		assertEquals(BANK_SLIPS, new HashSet<>(listed).size());
+		for (int i = 1; i < listed.size(); i++) {
+			int order = dueDates.get(i - 1).compareTo(dueDates.get(i));
+			assertTrue(order < 0 || order == 0 && BankSlipShards.ID_ORDER
+					.compare(UUID.fromString(listed.get(i - 1)), UUID.fromString(listed.get(i))) < 0);
+		}
+
+		String export = mockMvc.perform(get(REQUEST_MAPPING + "export").param("format", "csv")) //
+				.andExpect(status().isOk()) //
+				.andReturn().getResponse().getContentAsString();
+		assertEquals(BANK_SLIPS + 1, export.split("\n").length);
+	}
+
+	@Test
+	public void summaryAddsShardSummaries() throws Exception {
+		List<String> ids = createBankSlips("Shard");
+
+		mockMvc.perform(put(REQUEST_MAPPING + ids.get(0) + "/pay")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", Matchers.is("PAID")));
+		mockMvc.perform(delete(REQUEST_MAPPING + ids.get(1) + "/cancel")) //
+				.andExpect(status().isOk());
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Shard")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", Matchers.is(BANK_SLIPS - 2))) //
+				.andExpect(jsonPath("paid_count", Matchers.is(1))) //
+				.andExpect(jsonPath("canceled_count", Matchers.is(1)));
+	}
+
+	@Test
+	public void rebalanceMovesMisplacedBankSlips() throws Exception {
+		String id = createBankSlips("Shard").get(0);
+		mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")) //
+				.andExpect(status().isOk());
+
+		// boleto gravado em outro shard, como antes do acrescimo de um shard
+		int owner = bankSlipShards.shardOf(UUID.fromString(id));
+		int other = (owner + 1) % SHARDS.length;
+		moveRow(id, SHARDS[owner], SHARDS[other]);
+		this.cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+
+		mockMvc.perform(get(REQUEST_MAPPING + id)) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("status", Matchers.is("PAID")));
+
+		assertEquals(1, shardRebalancer.rebalance());
+		assertEquals(0, shardRebalancer.rebalance());
+
+		assertTrue(ids(SHARDS[owner]).contains(UUID.fromString(id)));
+		assertTrue(!ids(SHARDS[other]).contains(UUID.fromString(id)));
+		assertEquals(1, version(SHARDS[owner], id));
+
+		mockMvc.perform(get(REQUEST_MAPPING + "summary").param("customer", "Shard")) //
+				.andExpect(status().isOk()) //
+				.andExpect(jsonPath("pending_count", Matchers.is(BANK_SLIPS - 1))) //
+				.andExpect(jsonPath("paid_count", Matchers.is(1)));
+	}
+
+	@Test
+	public void partiallySavedBatchReportsUnsavedBankSlips() throws Exception {
+		execute(SHARD_1, "ALTER TABLE bank_slip ADD CONSTRAINT shard_failure CHECK (customer <> 'Partial')");
+		List<Integer> statuses;
+		List<String> savedIds;
+		try {
+			String created = mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+					.contentType(MediaType.APPLICATION_JSON) //
+					.content(batch("Partial"))) //
+					.andExpect(status().isOk()) //
+					.andExpect(jsonPath("$[?(@.status == 500)].id", Matchers.empty())) //
+					.andReturn().getResponse().getContentAsString();
+
+			statuses = JsonPath.read(created, "$[*].status");
+			savedIds = JsonPath.read(created, "$[?(@.status == 201)].id");
+		} finally {
+			execute(SHARD_1, "ALTER TABLE bank_slip DROP CONSTRAINT shard_failure");
+		}
+
+		// os shards 0 e 2 gravaram a sua parte do lote
+		Set<UUID> saved = new HashSet<>(ids(SHARD_0));
+		saved.addAll(ids(SHARD_2));
+		assertTrue(ids(SHARD_1).isEmpty());
+		assertEquals(saved.size(), savedIds.size());
+		for (String id : savedIds)
+			assertTrue(saved.contains(UUID.fromString(id)));
+
+		int unsaved = 0;
+		for (int status : statuses)
+			if (status == 500)
+				unsaved++;
+		assertTrue(unsaved > 0);
+		assertEquals(BANK_SLIPS, saved.size() + unsaved);
+	}
+
+	@Test
+	public void payWhileRebalancing() throws Exception {
+		String id = createBankSlips("Shard").get(0);
+
+		int owner = bankSlipShards.shardOf(UUID.fromString(id));
+		int other = (owner + 1) % SHARDS.length;
+		moveRow(id, SHARDS[owner], SHARDS[other]);
+		this.cacheManager.getCache(BankSlipRepository.CACHE_NAME).clear();
+
+		// como o ShardRebalancer: bloqueia na origem, copia para o destino e so
+		// entao remove da origem; o pagamento espera o bloqueio na origem
+		CompletableFuture<MockHttpServletResponse> pay;
+		try (Connection source = DriverManager.getConnection(SHARDS[other], "sa", "");
+				Connection target = DriverManager.getConnection(SHARDS[owner], "sa", "")) {
+			source.setAutoCommit(false);
+			try (PreparedStatement lock = source.prepareStatement("SELECT id FROM bank_slip WHERE id = ? FOR UPDATE")) {
+				lock.setBytes(1, bytes(UUID.fromString(id)));
+				lock.executeQuery().close();
+			}
+
+			pay = CompletableFuture.supplyAsync(() -> {
+				try {
+					return mockMvc.perform(put(REQUEST_MAPPING + id + "/pay")).andReturn().getResponse();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			Thread.sleep(300);
+
+			copyRow(id, source, target);
+			deleteRow(id, source);
+			source.commit();
+		}
+
+		MockHttpServletResponse response = pay.get();
+		assertEquals(200, response.getStatus());
+		assertEquals("PAID", JsonPath.read(response.getContentAsString(), "$.status"));
+		assertTrue(ids(SHARDS[owner]).contains(UUID.fromString(id)));
+	}
+
+	private List<String> createBankSlips(String customer) throws Exception {
+		String created = mockMvc.perform(post(REQUEST_MAPPING + "batch") //
+				.contentType(MediaType.APPLICATION_JSON) //
+				.content(batch(customer))) //
+				.andExpect(status().isOk()) //
+				.andReturn().getResponse().getContentAsString();
+
+		return JsonPath.read(created, "$[*].id");
+	}
+
+	private static String batch(String customer) {
+		StringBuilder content = new StringBuilder("[");
+		for (int i = 0; i < BANK_SLIPS; i++) {
+			if (i > 0)
+				content.append(',');
+			content.append("{\"due_date\":\"2018-05-").append(10 + i % 5) //
+					.append("\",\"total_in_cents\":100000,\"customer\":\"").append(customer).append("\"}");
+		}
+
+		return content.append(']').toString();
+	}
+
+	private static void moveRow(String id, String from, String to) throws SQLException {
+		try (Connection source = DriverManager.getConnection(from, "sa", "");
+				Connection target = DriverManager.getConnection(to, "sa", "")) {
+			copyRow(id, source, target);
+			deleteRow(id, source);
+		}
+	}
+
+	private static void copyRow(String id, Connection source, Connection target) throws SQLException {
+		try (PreparedStatement select = source.prepareStatement("SELECT * FROM bank_slip WHERE id = ?")) {
+			select.setBytes(1, bytes(UUID.fromString(id)));
+			try (ResultSet resultSet = select.executeQuery()) {
+				resultSet.next();
+
+				int columns = resultSet.getMetaData().getColumnCount();
+				StringBuilder sql = new StringBuilder("INSERT INTO bank_slip (");
+				for (int i = 1; i <= columns; i++)
+					sql.append(i > 1 ? "," : "").append(resultSet.getMetaData().getColumnName(i));
+				sql.append(") VALUES (").append("?,".repeat(columns - 1)).append("?)");
+
+				try (PreparedStatement insert = target.prepareStatement(sql.toString())) {
+					for (int i = 1; i <= columns; i++)
+						insert.setObject(i, resultSet.getObject(i));
+					insert.executeUpdate();
+				}
+			}
+		}
+	}
+
+	private static void deleteRow(String id, Connection connection) throws SQLException {
+		try (PreparedStatement delete = connection.prepareStatement("DELETE FROM bank_slip WHERE id = ?")) {
+			delete.setBytes(1, bytes(UUID.fromString(id)));
+			delete.executeUpdate();
+		}
+	}
+
+	private static List<UUID> ids(String url) throws SQLException {
+		List<UUID> ids = new ArrayList<>();
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SELECT id FROM bank_slip")) {
+			while (resultSet.next()) {
+				ByteBuffer id = ByteBuffer.wrap(resultSet.getBytes(1));
+				ids.add(new UUID(id.getLong(), id.getLong()));
+			}
+		}
+		return ids;
+	}
+
+	private static long version(String url, String id) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				PreparedStatement statement = connection.prepareStatement("SELECT version FROM bank_slip WHERE id = ?")) {
+			statement.setBytes(1, bytes(UUID.fromString(id)));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getLong(1);
+			}
+		}
+	}
+
+	private static byte[] bytes(UUID id) {
+		return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+				.array();
+	}
+
+	private static void execute(String url, String sql) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(url, "sa", "");
+				Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+}
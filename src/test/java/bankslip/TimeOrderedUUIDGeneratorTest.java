@@ -0,0 +1,73 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import bankslips.data.TimeOrderedUUIDGenerator;
+
+public class TimeOrderedUUIDGeneratorTest {
+
+	@Test
+	public void versionAndVariant() {
+		long before = System.currentTimeMillis();
+		UUID id = TimeOrderedUUIDGenerator.next();
+
+		assertEquals(7, id.version());
+		assertEquals(2, id.variant());
+		assertEquals(id, UUID.fromString(id.toString()));
+
+		long millis = id.getMostSignificantBits() >>> 16;
+		assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1);
+	}
+
+	@Test
+	public void monotonic() {
+		UUID last = TimeOrderedUUIDGenerator.next();
+		for (int i = 0; i < 100_000; i++) {
+			UUID next = TimeOrderedUUIDGenerator.next();
+
+			// comparacao sem sinal, como na ordenacao dos bytes no indice
+			assertTrue(Long.compareUnsigned(last.getMostSignificantBits(), next.getMostSignificantBits()) < 0);
+			last = next;
+		}
+	}
+
+	@Test
+	public void uniqueAcrossThreads() throws Exception {
+		int threads = 8;
+		int idsPerThread = 50_000;
+		Set<UUID> ids = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				tasks.add(() -> {
+					for (int i = 0; i < idsPerThread; i++)
+						ids.add(TimeOrderedUUIDGenerator.next());
+					return null;
+				});
+			}
+
+			for (Future<Void> result : executor.invokeAll(tasks))
+				result.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(threads * idsPerThread, ids.size());
+	}
+
+}
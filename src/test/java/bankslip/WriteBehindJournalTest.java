@@ -0,0 +1,100 @@
+package bankslip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import bankslips.data.TimeOrderedUUIDGenerator;
+import bankslips.data.WriteBehindJournal;
+import bankslips.data.dto.BankSlipDTO;
+import bankslips.enumerators.BankSlipStatusEnum;
+
+public class WriteBehindJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void recoverAcceptedBankSlips() throws IOException {
+		Path directory = folder.getRoot().toPath();
+
+		WriteBehindJournal journal = new WriteBehindJournal(directory, objectMapper, 1024 * 1024, true);
+		journal.append(bankSlip(1000));
+		journal.append(bankSlip(2000));
+		journal.close();
+
+		// queda durante a escrita do terceiro boleto
+		try (Stream<Path> segments = Files.list(directory)) {
+			Path segment = segments.findFirst().get();
+			Files.write(segment, "{\"id\":\"".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		}
+
+		journal = new WriteBehindJournal(directory, objectMapper, 1024 * 1024, true);
+		List<BankSlipDTO> recovered = journal.recover();
+
+		assertEquals(2, recovered.size());
+		assertEquals(Long.valueOf(1000), recovered.get(0).getTotalInCents());
+		assertEquals(Long.valueOf(2000), recovered.get(1).getTotalInCents());
+		assertEquals("Trillian Company", recovered.get(0).getCustomer());
+
+		journal.deleteRecovered();
+		journal.close();
+
+		// segmento atual vazio e apagado ao fechar
+		try (Stream<Path> segments = Files.list(directory)) {
+			assertEquals(0, segments.count());
+		}
+	}
+
+	@Test
+	public void deleteSegmentsWhenCommitted() throws IOException {
+		Path directory = folder.getRoot().toPath();
+
+		// um boleto por segmento
+		WriteBehindJournal journal = new WriteBehindJournal(directory, objectMapper, 1, false);
+		WriteBehindJournal.Segment first = journal.append(bankSlip(1000));
+		WriteBehindJournal.Segment second = journal.append(bankSlip(2000));
+
+		assertTrue(first != second);
+		assertEquals(3, count(directory));
+
+		first.committed();
+		assertEquals(2, count(directory));
+
+		journal.close();
+		assertEquals(1, count(directory));
+
+		second.committed();
+		assertFalse(count(directory) > 0);
+	}
+
+	private long count(Path directory) throws IOException {
+		try (Stream<Path> segments = Files.list(directory)) {
+			return segments.count();
+		}
+	}
+
+	private BankSlipDTO bankSlip(long totalInCents) {
+		BankSlipDTO bankSlipDTO = new BankSlipDTO("2018-05-10", totalInCents, "Trillian Company",
+				BankSlipStatusEnum.PENDING);
+		bankSlipDTO.setId(TimeOrderedUUIDGenerator.next());
+		return bankSlipDTO;
+	}
+
+}